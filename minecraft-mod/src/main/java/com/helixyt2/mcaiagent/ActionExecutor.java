@@ -1,219 +1,912 @@
 package com.helixyt2.mcaiagent;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.helixyt2.mcaiagent.action.Action;
+import com.helixyt2.mcaiagent.action.ActionContext;
+import com.helixyt2.mcaiagent.action.ActionHandler;
+import com.helixyt2.mcaiagent.action.ActionRegistry;
+import com.helixyt2.mcaiagent.action.ActionTimeoutException;
+import com.helixyt2.mcaiagent.action.Actions;
+import com.helixyt2.mcaiagent.action.Batch;
+import com.helixyt2.mcaiagent.action.Resource;
 import com.helixyt2.mcaiagent.automation.BaritoneIntegration;
 import com.helixyt2.mcaiagent.automation.CraftingAutomation;
+import com.helixyt2.mcaiagent.automation.CraftingPlanner;
+import com.helixyt2.mcaiagent.automation.MiningAutomation;
 import com.helixyt2.mcaiagent.automation.SmeltingAutomation;
+import com.helixyt2.mcaiagent.metrics.ActionMetrics;
+import com.helixyt2.mcaiagent.pathing.Path;
 import net.minecraft.client.MinecraftClient;
-import net.minecraft.client.network.ClientPlayerEntity;
+import net.minecraft.item.Item;
+import net.minecraft.registry.Registries;
 import net.minecraft.util.math.BlockPos;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
+/**
+ * Runs queued actions. Each action holds a set of resources (movement, hands,
+ * chat, look) while it runs; actions with disjoint resources run in the same
+ * tick, and actions sharing a resource run one after another.
+ *
+ * Waiting actions are started by priority, then deadline, then arrival. An
+ * action blocked only by running actions of lower priority suspends them
+ * and they resume once it is done. Every pending action is reachable by id
+ * for cancellation.
+ *
+ * Actions of a batch enter the schedule once their dependencies are done;
+ * their results go into the batch's aggregated updates instead of
+ * action_complete/action_failed.
+ *
+ * The first LOOKAHEAD waiting actions are prepared while they wait, from
+ * where the player is predicted to be when each starts: paths are searched
+ * into the path cache and recipes looked up, so an action's first tick
+ * finds them ready.
+ *
+ * Every action's queue wait, ticks to first progress, run time and result
+ * send delay go into per-type histograms, exported as metrics messages on
+ * request and every metricsInterval ticks.
+ */
 public class ActionExecutor {
-    private final Queue<JsonObject> actionQueue = new ConcurrentLinkedQueue<>();
-    private JsonObject currentAction = null;
-    private boolean isExecuting = false;
-    private int tickCounter = 0;
+    private static final int LOOKAHEAD = 2; // Waiting actions prepared ahead of their start
+    
+    // Batch actions are only unique within their batch; batchId is null for the others
+    private record HandleKey(String batchId, String actionId) {
+    }
+    
+    // Actions arrive parsed and bound to their handler
+    private final Queue<ActionContext> actionQueue = new ConcurrentLinkedQueue<>();
+    private final ActionRegistry registry = new ActionRegistry();
+    
+    // Client thread only
+    private final TreeSet<ActionContext> waiting = new TreeSet<>(ActionContext.SCHEDULE_ORDER); // Includes suspended actions
+    private final List<ActionContext> running = new ArrayList<>(); // At most one per resource
+    private final Map<HandleKey, ActionContext> handles = new HashMap<>(); // Pending actions by batch and id
+    private final EnumSet<Resource> held = EnumSet.noneOf(Resource.class); // Union of the running actions' resources
+    private final EnumSet<Resource> reserved = EnumSet.noneOf(Resource.class);
+    private final List<ActionContext> conflicts = new ArrayList<>();
+    private final List<ActionContext> preempted = new ArrayList<>();
+    
+    // Batches arrive parsed like actions; their actions enter the schedule as dependencies finish
+    private final Queue<Batch> batchQueue = new ConcurrentLinkedQueue<>();
+    private final Map<String, Batch> batches = new HashMap<>(); // Unfinished batches by id, client thread only
+    private final Set<Batch> changedBatches = new LinkedHashSet<>(); // Node results to act on and report this tick
+    private final List<ActionContext> batchReported = new ArrayList<>(); // Batch actions finished this tick
+    
+    private final ActionMetrics metrics = new ActionMetrics();
+    private volatile int metricsInterval = 1200; // Ticks between periodic snapshots, 0 for none
+    private volatile boolean metricsReset = false; // Periodic snapshots cover only their interval
+    private int metricsTicks = 0;
     
     private final BaritoneIntegration baritone;
     private final CraftingAutomation crafting;
     private final SmeltingAutomation smelting;
-    private final BaritoneIntegration baritone;
-    private final CraftingAutomation crafting;
-    private final SmeltingAutomation smelting;
+    private final MiningAutomation mining;
+    
+    // Pushed by Baritone's path events for the running goto/mine
+    private BaritoneIntegration.PathOutcome pathOutcome;
+    
+    // Speculative path search for a queued action; one at a time so it never holds up a real one for long
+    private CompletableFuture<Path> prefetch;
     
     public ActionExecutor(MinecraftClient client) {
         this.baritone = new BaritoneIntegration(client);
+        this.baritone.setListener(outcome -> pathOutcome = outcome);
         this.crafting = new CraftingAutomation(client);
         this.smelting = new SmeltingAutomation(client);
+        this.mining = new MiningAutomation(client);
+        registerBuiltins();
     }
-        actionQueue.add(action);
-        MCAIAgentMod.LOGGER.info("Action queued: " + action.get("type").getAsString());
+    
+    private void registerBuiltins() {
+        // Pathing turns the player, so moving also holds the look direction
+        registry.register("goto", ActionHandler.of(Actions.Goto::parse, this::executeGoto,
+                EnumSet.of(Resource.MOVEMENT, Resource.LOOK))
+            .suspendable((action, context) -> true, this::suspendPath, this::resumeGoto)
+            .onCancel(this::cancelPath)
+            .preparable((action, start) -> action.target(), (action, start) -> prefetchPath(start, action.target())));
+        registry.register("follow_path", ActionHandler.of(Actions.FollowPath::parse, this::executeFollowPath,
+                EnumSet.of(Resource.MOVEMENT, Resource.LOOK))
+            .suspendable((action, context) -> true, this::suspendFollowPath, this::resumeFollowPath)
+            .onCancel(this::cancelPath)
+            .preparable(ActionExecutor::routeEnd, (action, start) -> prefetchPath(start, action.waypoints().get(0))));
+        // Where a mining run ends is unknown, but its first trip is not
+        registry.register("mine", ActionHandler.of(Actions.Mine::parse, this::executeMine,
+                EnumSet.of(Resource.MOVEMENT, Resource.LOOK, Resource.HANDS))
+            .suspendable((action, context) -> true, this::suspendMine, this::resumeMine)
+            .onCancel(this::cancelMine)
+            .preparable(null, this::prepareMine));
+        registry.register("place", ActionHandler.of(Actions.Place::parse, this::executePlace,
+                EnumSet.of(Resource.HANDS, Resource.LOOK))
+            .suspendable((action, context) -> true, ActionExecutor::noop, ActionExecutor::noop));
+        // Both walk up to a crafting table or furnaces, which must stay in reach
+        registry.register("craft", ActionHandler.of(Actions.Craft::parse, this::executeCraft,
+                EnumSet.of(Resource.HANDS, Resource.MOVEMENT))
+            .onCancel((action, context) -> crafting.stop())
+            .preparable(null, this::prepareCraft));
+        // Only between furnace visits, never with a furnace screen open; walks
+        // back to the furnaces when resumed somewhere else
+        registry.register("smelt", ActionHandler.of(Actions.Smelt::parse, this::executeSmelt,
+                EnumSet.of(Resource.HANDS, Resource.MOVEMENT, Resource.LOOK))
+            .suspendable((action, context) -> smelting.canSuspend(), ActionExecutor::noop, this::resumeSmelt)
+            .onCancel((action, context) -> smelting.stop()));
+        registry.register("interact", ActionHandler.of(Actions.Interact::parse, this::executeInteract,
+                EnumSet.of(Resource.HANDS, Resource.LOOK))
+            .suspendable((action, context) -> true, ActionExecutor::noop, ActionExecutor::noop));
+        registry.register("chat", ActionHandler.of(Actions.Chat::parse, this::executeChat,
+            EnumSet.of(Resource.CHAT)));
+    }
+    
+    private static void noop(Action action, ActionContext context) {
+    }
+    
+    private static BlockPos routeEnd(Actions.FollowPath action, BlockPos start) {
+        return action.waypoints().get(action.waypoints().size() - 1);
+    }
+    
+    /**
+     * Handlers for every action type; register more to add action types
+     */
+    public ActionRegistry getRegistry() {
+        return registry;
+    }
+    
+    public ActionMetrics getMetrics() {
+        return metrics;
+    }
+    
+    public void setMetricsInterval(int ticks) {
+        this.metricsInterval = Math.max(0, ticks);
+    }
+    
+    public void setMetricsReset(boolean reset) {
+        this.metricsReset = reset;
+    }
+    
+    /**
+     * Parse an action and queue it. Called on the WebSocket thread, so the
+     * JSON is only read here; actions that do not parse fail right away.
+     */
+    public void queueAction(JsonObject action) {
+        ActionContext context;
+        try {
+            context = registry.parse(action);
+        } catch (IllegalArgumentException e) {
+            MCAIAgentMod.LOGGER.warn("Rejected action: " + e.getMessage());
+            MCAIAgentMod.getInstance().getWebSocketClient().sendActionFailed(ActionRegistry.idOf(action), e.getMessage());
+            return;
+        }
+        actionQueue.add(context);
+        MCAIAgentMod.LOGGER.info("Action queued: " + context.getType());
+    }
+    
+    /**
+     * Parse an execute_batch message and queue it. Called on the WebSocket
+     * thread; a batch that does not parse is rejected as a whole.
+     */
+    public void queueBatch(JsonObject message) {
+        Batch batch;
+        try {
+            batch = Batch.parse(message, registry);
+        } catch (IllegalArgumentException e) {
+            rejectBatch(message.get("batchId"), e.getMessage());
+            return;
+        }
+        batchQueue.add(batch);
+        MCAIAgentMod.LOGGER.info("Batch queued: " + batch.getId());
+    }
+    
+    private static void rejectBatch(JsonElement batchId, String error) {
+        MCAIAgentMod.LOGGER.warn("Rejected batch: " + error);
+        JsonObject rejected = new JsonObject();
+        rejected.addProperty("type", "batch_update");
+        rejected.add("batchId", batchId);
+        rejected.add("results", new JsonArray());
+        rejected.addProperty("done", true);
+        rejected.addProperty("error", error);
+        MCAIAgentMod.getInstance().getWebSocketClient().sendReply(rejected);
     }
     
     public void tick(MinecraftClient client) {
         if (client.player == null) return;
         
-        // If not currently executing, get next action
-        if (!isExecuting && !actionQueue.isEmpty()) {
-            currentAction = actionQueue.poll();
-            isExecuting = true;
-            tickCounter = 0;
-            MCAIAgentMod.LOGGER.info("Starting action: " + currentAction.get("type").getAsString());
+        // Fallback pathing moves the player on the tick
+        baritone.tick();
+        
+        drainIncoming();
+        long now = System.nanoTime();
+        for (Iterator<ActionContext> it = running.iterator(); it.hasNext(); ) {
+            ActionContext action = it.next();
+            if (action.isExpired(now)) {
+                it.remove();
+                held.removeAll(action.getResources());
+                fail(action, ActionMetrics.Outcome.TIMED_OUT, "Missed its deadline");
+            }
+        }
+        startReady(client, now);
+        
+        // Running actions hold disjoint resources, so they all get this tick
+        int inventoryVersion = MCAIAgentMod.getInstance().getInventoryIndex().getVersion();
+        for (Iterator<ActionContext> it = running.iterator(); it.hasNext(); ) {
+            ActionContext action = it.next();
+            if (executeAction(client, action, inventoryVersion)) {
+                it.remove();
+                held.removeAll(action.getResources());
+                handles.remove(handleKey(action), action);
+                action.markFinished();
+            }
+        }
+        
+        settleBatches();
+        prepareAhead(client);
+        
+        int interval = metricsInterval;
+        if (interval > 0 && ++metricsTicks >= interval) {
+            metricsTicks = 0;
+            MCAIAgentMod.getInstance().getWebSocketClient().sendMetrics(metricsReset);
+        }
+    }
+    
+    /**
+     * Move actions and batches parsed on the WebSocket thread into the schedule
+     */
+    private void drainIncoming() {
+        ActionContext incoming;
+        while ((incoming = actionQueue.poll()) != null) {
+            schedule(incoming);
         }
         
-        // Execute current action
-        if (isExecuting && currentAction != null) {
-            boolean completed = executeAction(client, currentAction);
+        Batch batch;
+        while ((batch = batchQueue.poll()) != null) {
+            if (batches.containsKey(batch.getId())) {
+                rejectBatch(new JsonPrimitive(batch.getId()), "A batch with this id is still running");
+                continue;
+            }
+            batches.put(batch.getId(), batch);
+            batch.start();
+            for (ActionContext action : batch.takeReleased()) {
+                schedule(action);
+            }
+        }
+    }
+    
+    private void schedule(ActionContext action) {
+        if (action.getBatch() != null) {
+            action.markQueued(System.nanoTime()); // Waiting on dependencies is not queue time
+        }
+        waiting.add(action);
+        handles.put(handleKey(action), action);
+    }
+    
+    private static HandleKey handleKey(ActionContext action) {
+        Batch batch = action.getBatch();
+        return new HandleKey(batch != null ? batch.getId() : null, action.getId());
+    }
+    
+    /**
+     * Act on the batch results of this tick: schedule the actions whose
+     * dependencies are now done, cancel aborted batches, and send one
+     * batch_update per batch with everything that finished
+     */
+    private void settleBatches() {
+        if (changedBatches.isEmpty()) return;
+        
+        for (Batch batch : changedBatches) {
+            if (batch.isAborting()) {
+                abortBatch(batch);
+            }
+            for (ActionContext action : batch.takeReleased()) {
+                schedule(action);
+            }
+            if (batch.hasUpdate()) {
+                MCAIAgentMod.getInstance().getWebSocketClient().sendReply(batch.takeUpdate(), sendTimer(batch));
+            }
+            if (batch.isDone()) {
+                batches.remove(batch.getId(), batch);
+                MCAIAgentMod.LOGGER.info("Batch finished: " + batch.getId());
+            }
+        }
+        changedBatches.clear();
+        batchReported.clear();
+    }
+    
+    /**
+     * Records the send delay of the batch's actions reported this tick once
+     * their update is written
+     */
+    private Runnable sendTimer(Batch batch) {
+        List<ActionContext> reported = new ArrayList<>();
+        for (ActionContext action : batchReported) {
+            if (action.getBatch() == batch) {
+                reported.add(action);
+            }
+        }
+        return () -> {
+            long sent = System.nanoTime();
+            for (ActionContext action : reported) {
+                metrics.recordSendDelay(action.getType(), sent - action.getDoneAt());
+            }
+        };
+    }
+    
+    private void abortBatch(Batch batch) {
+        for (ActionContext action : batch.abort("Batch aborted")) {
+            if (running.remove(action)) {
+                held.removeAll(action.getResources());
+            }
+            metrics.recordOutcome(action.getType(), ActionMetrics.Outcome.CANCELED);
+            action.cancel(); // Waiting ones are dropped when the scheduler passes them
+            handles.remove(handleKey(action), action);
+        }
+    }
+    
+    /**
+     * Cancel every unfinished action of a batch. Client thread only.
+     *
+     * @return false if no unfinished batch has this id
+     */
+    public boolean cancelBatch(String batchId) {
+        drainIncoming();
+        Batch batch = batches.get(batchId);
+        if (batch == null) {
+            return false;
+        }
+        
+        abortBatch(batch);
+        changedBatches.add(batch);
+        settleBatches();
+        return true;
+    }
+    
+    /**
+     * Start every waiting action whose resources are free, most urgent first.
+     * An action that has to wait also reserves its resources against the
+     * actions after it, so actions sharing a resource keep their order.
+     */
+    private void startReady(MinecraftClient client, long now) {
+        if (waiting.isEmpty()) return;
+        
+        reserved.clear();
+        for (Iterator<ActionContext> it = waiting.iterator(); it.hasNext(); ) {
+            ActionContext action = it.next();
+            if (action.isFinished()) {
+                it.remove(); // Canceled while waiting
+                continue;
+            }
+            if (action.isExpired(now)) {
+                it.remove();
+                fail(action, ActionMetrics.Outcome.TIMED_OUT, "Missed its deadline");
+                continue;
+            }
             
-            if (completed) {
-                String actionId = currentAction.has("id") ? currentAction.get("id").getAsString() : "unknown";
-                JsonObject result = new JsonObject();
-                result.addProperty("success", true);
-                
-                MCAIAgentMod.getInstance().getWebSocketClient().sendActionComplete(actionId, result);
-                MCAIAgentMod.LOGGER.info("Action completed: " + currentAction.get("type").getAsString());
-                
-                isExecuting = false;
-                currentAction = null;
+            EnumSet<Resource> resources = action.getResources();
+            if (overlaps(reserved, resources) || (overlaps(held, resources) && !preempt(action))) {
+                reserved.addAll(resources);
+                continue;
+            }
+            
+            it.remove();
+            running.add(action);
+            held.addAll(resources);
+            if (action.isSuspended()) {
+                action.resume();
+                MCAIAgentMod.LOGGER.info("Resuming action: " + action.getType());
+            } else {
+                action.markStarted(now, client.player.getPos(), MCAIAgentMod.getInstance().getInventoryIndex().getVersion());
+                metrics.recordQueueWait(action.getType(), now - action.getQueuedAt());
+                MCAIAgentMod.LOGGER.info("Starting action: " + action.getType());
             }
         }
         
-        tickCounter++;
+        // Back in line; they sort ahead of anything queued after them at their priority
+        waiting.addAll(preempted);
+        preempted.clear();
     }
     
-    private boolean executeAction(MinecraftClient client, JsonObject action) {
-        String type = action.get("type").getAsString();
-        ClientPlayerEntity player = client.player;
+    /**
+     * Prepare the next waiting actions in start order. Each one is assumed to
+     * start where the running actions and the waiting ones before it leave
+     * the player.
+     */
+    private void prepareAhead(MinecraftClient client) {
+        if (waiting.isEmpty()) return;
         
-        try {
-            switch (type) {
-                case "goto":
-                    return executeGoto(client, action);
-                    
-                case "mine":
-                    return executeMine(client, action);
-                    
-                case "place":
-                    return executePlace(client, action);
-                    
-                case "craft":
-                    return executeCraft(client, action);
-                    
-                case "smelt":
-                    return executeSmelt(client, action);
-                    
-                case "interact":
-                    return executeInteract(client, action);
-                    
-                case "chat":
-                    return executeChat(client, action);
-                    
-                default:
-                    MCAIAgentMod.LOGGER.warn("Unknown action type: " + type);
-                    return true; // Skip unknown actions
+        BlockPos position = client.player.getBlockPos();
+        for (ActionContext action : running) {
+            position = action.predictEnd(position);
+        }
+        
+        int count = 0;
+        for (ActionContext action : waiting) {
+            if (count >= LOOKAHEAD) break;
+            if (action.isFinished() || action.isSuspended()) continue; // Suspended ones already started
+            
+            action.prepare(position);
+            position = action.predictEnd(position);
+            count++;
+        }
+    }
+    
+    /**
+     * Search the path from start to goal ahead of time so it is in the path
+     * cache when the action starts. Only the native pathfinder has a cache;
+     * Baritone plans its own paths. Returns false while another speculative
+     * search is still running.
+     */
+    private boolean prefetchPath(BlockPos start, BlockPos goal) {
+        if (baritone.isAvailable()) return true;
+        if (prefetch != null && !prefetch.isDone()) return false;
+        
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (client.world == null) return true;
+        prefetch = MCAIAgentMod.getInstance().getPathfinder().findPath(client.world, start, goal);
+        return true;
+    }
+    
+    private boolean prepareMine(Actions.Mine action, BlockPos start) {
+        if (baritone.isAvailable()) return true; // Baritone runs its own search
+        
+        BlockPos first = mining.predictFirstTarget(action.target(), action.quantity(), start);
+        return first == null || prefetchPath(start, first);
+    }
+    
+    /**
+     * Look the recipe up as a tick scheduler task, so a recipe index rebuild
+     * after a recipe book change happens before the action's first tick
+     */
+    private boolean prepareCraft(Actions.Craft action, BlockPos start) {
+        String recipe = action.recipe();
+        MCAIAgentMod.getInstance().getTickScheduler().submit(budget -> {
+            MCAIAgentMod.getInstance().getRecipeIndex().find(recipe);
+            return true;
+        });
+        return true;
+    }
+    
+    /**
+     * Suspend the running actions in the way of a more urgent one. Only done
+     * if every one of them has a lower priority and can be paused right now.
+     */
+    private boolean preempt(ActionContext urgent) {
+        conflicts.clear();
+        for (ActionContext action : running) {
+            if (!overlaps(action.getResources(), urgent.getResources())) continue;
+            if (action.getPriority() >= urgent.getPriority() || !action.canSuspend()) {
+                return false;
             }
+            conflicts.add(action);
+        }
+        
+        for (ActionContext action : conflicts) {
+            action.suspend();
+            running.remove(action);
+            held.removeAll(action.getResources());
+            reserved.addAll(action.getResources()); // Nothing less urgent may take its place
+            preempted.add(action);
+            MCAIAgentMod.LOGGER.info("Suspended " + action.getType() + " for " + urgent.getType());
+        }
+        return true;
+    }
+    
+    private static boolean overlaps(EnumSet<Resource> a, EnumSet<Resource> b) {
+        for (Resource resource : b) {
+            if (a.contains(resource)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Cancel a queued, running or suspended action by id. The lookup is a
+     * single map access; a waiting action is only marked and dropped when the
+     * scheduler next passes it. Client thread only.
+     *
+     * @param batchId the action's batch, null for an action sent on its own
+     * @return false if no pending action has this id
+     */
+    public boolean cancel(String batchId, String actionId) {
+        drainIncoming();
+        ActionContext action = handles.get(new HandleKey(batchId, actionId));
+        if (action == null) {
+            return false;
+        }
+        
+        // At most one running action per resource, so this scan is short
+        if (running.remove(action)) {
+            held.removeAll(action.getResources());
+        }
+        fail(action, ActionMetrics.Outcome.CANCELED, "Canceled");
+        return true;
+    }
+    
+    private void fail(ActionContext action, ActionMetrics.Outcome outcome, String reason) {
+        action.cancel();
+        handles.remove(handleKey(action), action);
+        MCAIAgentMod.LOGGER.info("Action " + action.getId() + " (" + action.getType() + ") ended: " + reason);
+        report(action, outcome, reason);
+    }
+    
+    /**
+     * Run one tick of the action. Returns true once it is done, reporting
+     * whether it completed or failed.
+     */
+    private boolean executeAction(MinecraftClient client, ActionContext action, int inventoryVersion) {
+        boolean completed;
+        try {
+            completed = action.tick(client);
+        } catch (ActionTimeoutException e) {
+            MCAIAgentMod.LOGGER.warn("Action timed out: " + action.getType());
+            action.cancel();
+            report(action, ActionMetrics.Outcome.TIMED_OUT, e.getMessage());
+            return true;
         } catch (Exception e) {
-            MCAIAgentMod.LOGGER.error("Error executing action: " + type, e);
-            String actionId = action.has("id") ? action.get("id").getAsString() : "unknown";
-            MCAIAgentMod.getInstance().getWebSocketClient().sendActionFailed(actionId, e.getMessage());
+            MCAIAgentMod.LOGGER.error("Error executing action: " + action.getType(), e);
+            action.cancel(); // Stop what it left running, e.g. held movement keys
+            report(action, ActionMetrics.Outcome.FAILED, e.getMessage());
             return true; // Move to next action
         }
+        
+        if (action.observeProgress(client.player.getPos(), inventoryVersion)) {
+            metrics.recordFirstProgress(action.getType(), action.getProgressTicks());
+        }
+        if (completed) {
+            action.getResult().addProperty("success", true);
+            report(action, ActionMetrics.Outcome.COMPLETED, null);
+            MCAIAgentMod.LOGGER.info("Action completed: " + action.getType());
+        }
+        return completed;
     }
     
-    private boolean executeGoto(MinecraftClient client, JsonObject action) {
+    /**
+     * Record the outcome in the metrics and send action_complete/action_failed,
+     * or for a batch action record the result for the batch's next update
+     */
+    private void report(ActionContext action, ActionMetrics.Outcome outcome, String error) {
+        long now = System.nanoTime();
+        String type = action.getType();
+        boolean success = outcome == ActionMetrics.Outcome.COMPLETED;
+        action.markDone(now);
+        metrics.recordOutcome(type, outcome);
+        if (action.isStarted()) {
+            metrics.recordDuration(type, now - action.getStartedAt());
+            if (success && action.markProgress()) {
+                metrics.recordFirstProgress(type, action.getProgressTicks());
+            }
+        }
+        
+        Batch batch = action.getBatch();
+        if (batch != null) {
+            batch.onActionDone(action, success, error);
+            changedBatches.add(batch);
+            batchReported.add(action);
+            return;
+        }
+        Runnable onSent = () -> metrics.recordSendDelay(type, System.nanoTime() - now);
+        if (success) {
+            MCAIAgentMod.getInstance().getWebSocketClient().sendActionComplete(action.getId(), action.getResult(), onSent);
+        } else {
+            MCAIAgentMod.getInstance().getWebSocketClient().sendActionFailed(action.getId(), error, onSent);
+        }
+    }
+    
+    private boolean executeGoto(MinecraftClient client, Actions.Goto action, ActionContext context) {
         // Use Baritone for pathfinding
-        if (tickCounter == 1) { // Start pathfinding on first tick
-            int x = action.has("x") ? action.get("x").getAsInt() : 0;
-            int y = action.has("y") ? action.get("y").getAsInt() : 64;
-            int z = action.has("z") ? action.get("z").getAsInt() : 0;
-            
-            BlockPos target = new BlockPos(x, y, z);
-            baritone.goToPosition(target);
-            MCAIAgentMod.LOGGER.info("Started pathfinding to " + target);
+        if (context.isFirstTick()) { // Start pathfinding on first tick
+            pathOutcome = null;
+            baritone.goToPosition(action.target());
+            MCAIAgentMod.LOGGER.info("Started pathfinding to " + action.target());
         }
         
-        // Check if we've arrived
+        // Completion is reported by path events
+        if (pathOutcome != null) {
+            return checkPathOutcome("goto");
+        }
         if (!baritone.isActive()) {
-            return true; // Baritone finished
+            return true; // Nothing running (no Baritone)
         }
         
-        return tickCounter > 600; // Timeout after 30 seconds
+        checkTimeout(context, 600, "goto"); // 30 seconds
+        return false;
     }
     
-    private boolean executeMine(MinecraftClient client, JsonObject action) {
-        // Mining logic using Baritone
-        if (tickCounter == 1) {
-            String blockType = action.has("target") ? action.get("target").getAsString() : "stone";
-            int quantity = action.has("quantity") ? action.get("quantity").getAsInt() : 1;
-            
-            baritone.mineBlock(blockType, quantity);
-            MCAIAgentMod.LOGGER.info("Started mining " + quantity + " " + blockType);
+    private boolean executeFollowPath(MinecraftClient client, Actions.FollowPath action, ActionContext context) {
+        // Walk a route of waypoints without stopping at each one
+        if (context.isFirstTick()) {
+            pathOutcome = null;
+            baritone.followPath(action.waypoints().toArray(new BlockPos[0]));
+            MCAIAgentMod.LOGGER.info("Started following " + action.waypoints().size() + " waypoints");
+        }
+        
+        // Completion is reported by path events
+        if (pathOutcome != null) {
+            return checkPathOutcome("follow_path");
+        }
+        if (!baritone.isActive()) {
+            return true;
+        }
+        
+        checkTimeout(context, 600 * action.waypoints().size(), "follow_path"); // 30 seconds per waypoint
+        return false;
+    }
+    
+    private boolean executeMine(MinecraftClient client, Actions.Mine action, ActionContext context) {
+        // Baritone mines with its own search; without it the ore locator plans the tour
+        if (context.isFirstTick()) {
+            startMine(action);
+            MCAIAgentMod.LOGGER.info("Started mining " + action.quantity() + " " + action.target());
+        }
+        
+        // Tick the native mining automation
+        if (mining.isActive()) {
+            boolean done = mining.tick();
+            if (done && mining.getError() != null) {
+                throw new IllegalStateException(mining.getError());
+            }
+            if (done) {
+                context.getResult().addProperty("mined", mining.getMinedCount());
+            }
+            return done;
         }
         
-        // Check if mining is complete
+        // Completion is reported by path events
+        if (pathOutcome != null) {
+            return checkPathOutcome("mine");
+        }
         if (!baritone.isActive()) {
             return true;
         }
         
-        return tickCounter > 1200; // Timeout after 60 seconds
+        checkTimeout(context, 1200, "mine"); // 60 seconds
+        return false;
+    }
+    
+    private void suspendPath(Action action, ActionContext context) {
+        baritone.stop();
+        pathOutcome = null;
     }
     
-    private boolean executePlace(MinecraftClient client, JsonObject action) {
+    private void cancelPath(Action action, ActionContext context) {
+        baritone.stop();
+        pathOutcome = null;
+    }
+    
+    private void resumeGoto(Actions.Goto action, ActionContext context) {
+        pathOutcome = null;
+        baritone.goToPosition(action.target());
+    }
+    
+    private void suspendFollowPath(Actions.FollowPath action, ActionContext context) {
+        // Remember the waypoint being walked to, counted from the whole route
+        Integer resumedAt = context.getAttachment();
+        context.setAttachment((resumedAt != null ? resumedAt : 0) + baritone.getWaypointIndex());
+        suspendPath(action, context);
+    }
+    
+    private void resumeFollowPath(Actions.FollowPath action, ActionContext context) {
+        int from = context.<Integer>getAttachment();
+        List<BlockPos> remaining = action.waypoints().subList(from, action.waypoints().size());
+        pathOutcome = null;
+        baritone.followPath(remaining.toArray(new BlockPos[0]));
+    }
+    
+    /**
+     * Mine with Baritone if it takes the command, otherwise with the native
+     * mining automation (as goto falls back to the native navigator)
+     */
+    private void startMine(Actions.Mine action) {
+        pathOutcome = null;
+        mining.stop(); // Left over from a run canceled while suspended, which would be ticked instead
+        if (!baritone.isAvailable() || !baritone.mineBlock(action.target(), action.quantity())) {
+            mining.startMining(action.target(), action.quantity());
+        }
+    }
+    
+    private void suspendMine(Actions.Mine action, ActionContext context) {
+        if (mining.isActive()) {
+            mining.suspend();
+        } else {
+            suspendPath(action, context);
+        }
+    }
+    
+    private void resumeMine(Actions.Mine action, ActionContext context) {
+        if (mining.isActive()) {
+            mining.resume();
+        } else {
+            // Baritone does not report what it mined, so it is given the full amount again
+            startMine(action);
+        }
+    }
+    
+    private void cancelMine(Actions.Mine action, ActionContext context) {
+        cancelPath(action, context);
+        mining.stop();
+    }
+    
+    private static void checkTimeout(ActionContext context, int maxTicks, String type) {
+        if (context.getTicks() > maxTicks) {
+            throw new ActionTimeoutException(type + " timed out after " + maxTicks / 20 + " seconds");
+        }
+    }
+    
+    private boolean checkPathOutcome(String type) {
+        BaritoneIntegration.PathOutcome outcome = pathOutcome;
+        pathOutcome = null;
+        switch (outcome) {
+            case FAILED:
+                throw new IllegalStateException("Baritone could not find a path for " + type);
+            case CANCELED:
+                throw new IllegalStateException(type + " was canceled");
+            default:
+                return true;
+        }
+    }
+    
+    private boolean executePlace(MinecraftClient client, Actions.Place action, ActionContext context) {
         // Block placement logic
-        MCAIAgentMod.LOGGER.info("Place action");
-        return tickCounter > 10;
+        if (context.isFirstTick()) {
+            MCAIAgentMod.LOGGER.info("Place action");
+        }
+        return context.getTicks() > 10;
     }
     
-    private boolean executeCraft(MinecraftClient client, JsonObject action) {
-        // Crafting automation
-        String recipe = action.has("recipe") ? action.get("recipe").getAsString() : "unknown";
-        int quantity = action.has("quantity") ? action.get("quantity").getAsInt() : 1;
-        
-        if (tickCounter == 1) {
-            crafting.startCrafting(recipe, quantity);
-            MCAIAgentMod.LOGGER.info("Started crafting " + quantity + " " + recipe);
+    private boolean executeCraft(MinecraftClient client, Actions.Craft action, ActionContext context) {
+        // Crafting automation, including any intermediate items the recipe needs
+        if (context.isFirstTick()) {
+            CraftingPlanner.Plan plan = crafting.planCrafting(action.recipe(), action.quantity());
+            if (plan == null) {
+                throw new IllegalArgumentException("Unknown item: " + action.recipe());
+            }
+            if (!plan.isFeasible()) {
+                throw new IllegalStateException("Missing materials for " + action.recipe() + ": " + describeMissing(plan));
+            }
+            crafting.startPlan(plan);
+            MCAIAgentMod.LOGGER.info("Started crafting " + action.quantity() + " " + action.recipe() + " in " + plan.getSteps().size() + " steps");
         }
         
         // Tick the crafting automation
         if (crafting.isActive()) {
-            return crafting.tick();
+            boolean done = crafting.tick();
+            if (done && crafting.getError() != null) {
+                throw new IllegalStateException(crafting.getError());
+            }
+            return done;
         }
         
-        return tickCounter > 600; // Timeout
+        checkTimeout(context, 600, "craft");
+        return false;
     }
     
-    private boolean executeSmelt(MinecraftClient client, JsonObject action) {
+    private static String describeMissing(CraftingPlanner.Plan plan) {
+        StringBuilder missing = new StringBuilder();
+        for (Map.Entry<Item, Integer> entry : plan.getMissing().entrySet()) {
+            if (missing.length() > 0) missing.append(", ");
+            missing.append(entry.getValue()).append(" ").append(Registries.ITEM.getId(entry.getKey()));
+        }
+        return missing.toString();
+    }
+    
+    private boolean executeSmelt(MinecraftClient client, Actions.Smelt action, ActionContext context) {
         // Smelting automation
-        String item = action.has("item") ? action.get("item").getAsString() : "iron_ore";
-        int quantity = action.has("quantity") ? action.get("quantity").getAsInt() : 1;
+        if (context.isFirstTick()) {
+            smelting.startSmelting(action.item(), action.quantity(), action.furnaces());
+            MCAIAgentMod.LOGGER.info("Started smelting " + action.quantity() + " " + action.item() + " in up to " + action.furnaces() + " furnaces");
+        }
         
-        if (tickCounter == 1) {
-            smelting.startSmelting(item, quantity);
-            MCAIAgentMod.LOGGER.info("Started smelting " + quantity + " " + item);
+        // Walk back to the furnaces first if resumed out of their reach
+        if (context.getAttachment() != null) {
+            if (pathOutcome == null && baritone.isActive()) {
+                return false;
+            }
+            if (pathOutcome != null) {
+                checkPathOutcome("smelt");
+            }
+            context.setAttachment(null);
         }
         
         // Tick the smelting automation
         if (smelting.isActive()) {
-            return smelting.tick();
+            boolean done = smelting.tick();
+            if (done && smelting.getError() != null) {
+                throw new IllegalStateException(smelting.getError());
+            }
+            if (done) {
+                context.getResult().addProperty("smelted", smelting.getSmeltedCount());
+                context.getResult().addProperty("partial", smelting.getSmeltedCount() < action.quantity());
+            }
+            return done;
         }
         
-        return tickCounter > 1200; // Timeout
+        checkTimeout(context, 1200, "smelt");
+        return false;
+    }
+    
+    private void resumeSmelt(Actions.Smelt action, ActionContext context) {
+        BlockPos back = smelting.getReturnPos();
+        if (back != null) {
+            pathOutcome = null;
+            baritone.goToPosition(back);
+            context.setAttachment(back);
+        }
     }
     
-    private boolean executeInteract(MinecraftClient client, JsonObject action) {
+    private boolean executeInteract(MinecraftClient client, Actions.Interact action, ActionContext context) {
         // Entity/block interaction
-        MCAIAgentMod.LOGGER.info("Interact action");
-        return tickCounter > 5;
+        if (context.isFirstTick()) {
+            MCAIAgentMod.LOGGER.info("Interact action");
+        }
+        return context.getTicks() > 5;
     }
     
-    private boolean executeChat(MinecraftClient client, JsonObject action) {
+    private boolean executeChat(MinecraftClient client, Actions.Chat action, ActionContext context) {
         // Send chat message
-        String message = action.has("message") ? action.get("message").getAsString() : "";
-        if (client.player != null && !message.isEmpty()) {
-            client.player.networkHandler.sendChatMessage(message);
+        if (client.player != null && !action.message().isEmpty()) {
+            client.player.networkHandler.sendChatMessage(action.message());
         }
         return true; // Instant completion
     }
     
+    /**
+     * Drop every queued, running and suspended action. Every open batch gets a
+     * final batch_update with its unfinished actions canceled. Client thread only.
+     */
     public void stopAll() {
         actionQueue.clear();
-        currentAction = null;
-        isExecuting = false;
+        List<Batch> open = new ArrayList<>(batches.values());
+        open.addAll(batchQueue);
+        for (Batch batch : open) {
+            batch.abort("Stopped");
+            MCAIAgentMod.getInstance().getWebSocketClient().sendReply(batch.takeUpdate());
+        }
+        
+        for (ActionContext action : running) {
+            action.cancel();
+            metrics.recordOutcome(action.getType(), ActionMetrics.Outcome.CANCELED);
+        }
+        for (ActionContext action : waiting) {
+            if (!action.isFinished()) {
+                metrics.recordOutcome(action.getType(), ActionMetrics.Outcome.CANCELED);
+            }
+            action.cancel(); // Marks them finished; none of them holds the controls
+        }
+        waiting.clear();
+        running.clear();
+        handles.clear();
+        held.clear();
+        batchQueue.clear();
+        batches.clear();
+        changedBatches.clear();
+        batchReported.clear();
         
         // Stop automation systems
         baritone.stop();
+        if (prefetch != null) {
+            prefetch.cancel(false);
+            prefetch = null;
+        }
         
         MCAIAgentMod.LOGGER.info("All actions stopped");
     }
     
     public boolean isExecuting() {
-        return isExecuting;
+        return !running.isEmpty();
     }
     
     public int getQueueSize() {
-        return actionQueue.size();
+        return actionQueue.size() + waiting.size();
     }
 }
@@ -1,7 +1,14 @@
 package com.helixyt2.mcaiagent;
 
+import com.helixyt2.mcaiagent.automation.RecipeIndex;
+import com.helixyt2.mcaiagent.pathing.Pathfinder;
+import com.helixyt2.mcaiagent.state.InventoryIndex;
+import com.helixyt2.mcaiagent.world.BlockIndex;
+import com.helixyt2.mcaiagent.world.OreLocator;
 import net.fabricmc.api.ClientModInitializer;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientChunkEvents;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
 import net.minecraft.client.MinecraftClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,9 +18,15 @@ public class MCAIAgentMod implements ClientModInitializer {
     public static final Logger LOGGER = LoggerFactory.getLogger(MOD_ID);
     
     private static MCAIAgentMod instance;
+    private TickScheduler tickScheduler;
     private WebSocketClient wsClient;
     private ActionExecutor actionExecutor;
     private StateManager stateManager;
+    private BlockIndex blockIndex;
+    private OreLocator oreLocator;
+    private RecipeIndex recipeIndex;
+    private InventoryIndex inventoryIndex;
+    private Pathfinder pathfinder;
     
     @Override
     public void onInitializeClient() {
@@ -23,6 +36,12 @@ public class MCAIAgentMod implements ClientModInitializer {
         MinecraftClient client = MinecraftClient.getInstance();
         
         // Initialize components
+        tickScheduler = new TickScheduler();
+        blockIndex = new BlockIndex(tickScheduler);
+        oreLocator = new OreLocator(blockIndex);
+        recipeIndex = new RecipeIndex(client);
+        inventoryIndex = new InventoryIndex();
+        pathfinder = new Pathfinder(tickScheduler);
         actionExecutor = new ActionExecutor(client);
         stateManager = new StateManager();
         
@@ -30,14 +49,34 @@ public class MCAIAgentMod implements ClientModInitializer {
         wsClient = new WebSocketClient("ws://localhost:9876");
         wsClient.connect();
         
+        // Keep the block index and the path cache in sync with loaded chunks
+        ClientChunkEvents.CHUNK_LOAD.register((world, chunk) -> {
+            blockIndex.onChunkLoad(chunk);
+            pathfinder.getCache().onChunkLoad(chunk.getPos());
+        });
+        ClientChunkEvents.CHUNK_UNLOAD.register((world, chunk) -> blockIndex.onChunkUnload(chunk));
+        ClientPlayConnectionEvents.DISCONNECT.register((handler, disconnectClient) -> {
+            blockIndex.clear();
+            recipeIndex.clear();
+            pathfinder.getCache().clear();
+        });
+        
         // Register tick event
         ClientTickEvents.END_CLIENT_TICK.register(tickClient -> {
             if (tickClient.player != null) {
+                tickScheduler.beginTick();
+                
+                // Bring the shared inventory index up to date first
+                inventoryIndex.tick(tickClient.player);
+                
                 // Update state periodically
                 stateManager.tick(tickClient);
                 
                 // Execute queued actions
                 actionExecutor.tick(tickClient);
+                
+                // Deferred work (chunk indexing, path snapshots) in what is left of the budget
+                tickScheduler.runTasks();
             }
         });
         
@@ -48,6 +87,10 @@ public class MCAIAgentMod implements ClientModInitializer {
         return instance;
     }
     
+    public TickScheduler getTickScheduler() {
+        return tickScheduler;
+    }
+    
     public WebSocketClient getWebSocketClient() {
         return wsClient;
     }
@@ -60,9 +103,29 @@ public class MCAIAgentMod implements ClientModInitializer {
         return stateManager;
     }
     
+    public BlockIndex getBlockIndex() {
+        return blockIndex;
+    }
+    
+    public OreLocator getOreLocator() {
+        return oreLocator;
+    }
+    
+    public RecipeIndex getRecipeIndex() {
+        return recipeIndex;
+    }
+    
+    public InventoryIndex getInventoryIndex() {
+        return inventoryIndex;
+    }
+    
     public void shutdown() {
         if (wsClient != null) {
             wsClient.disconnect();
         }
     }
+    
+    public Pathfinder getPathfinder() {
+        return pathfinder;
+    }
 }
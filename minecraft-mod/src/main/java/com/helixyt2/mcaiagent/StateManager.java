@@ -1,70 +1,135 @@
 package com.helixyt2.mcaiagent;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
+import com.helixyt2.mcaiagent.state.StateSnapshot;
 import net.minecraft.client.MinecraftClient;
-import net.minecraft.client.network.ClientPlayerEntity;
-import net.minecraft.item.ItemStack;
-import net.minecraft.util.math.BlockPos;
 
 public class StateManager {
-    private int updateInterval = 20; // Update every second (20 ticks)
+    public enum ReportMode {
+        FIXED,     // Send every updateInterval ticks
+        ADAPTIVE   // Send on significant change, bounded by min/max interval
+    }
+    
+    // Configured from the WebSocket thread, read on the client thread
+    private volatile ReportMode reportMode = ReportMode.FIXED;
+    private volatile int updateInterval = 20; // Update every second (20 ticks)
+    private volatile int minInterval = 2; // Adaptive: never more often than every 2 ticks
+    private volatile int maxInterval = 100; // Adaptive: at least every 5 seconds
+    private volatile double positionThreshold = 1.0; // Adaptive: blocks moved before reporting
     private int ticksSinceUpdate = 0;
     
+    // Delta mode: only changed fields/slots are sent between full keyframes
+    private volatile boolean deltaMode = false;
+    private volatile int keyframeInterval = 30; // Full state every 30 updates
+    private volatile boolean keyframeRequested = true;
+    private int updatesSinceKeyframe = 0;
+    
+    // Preallocated snapshots, reused every update so capturing never allocates
+    private final StateSnapshot current = new StateSnapshot();
+    private final StateSnapshot lastSent = new StateSnapshot();
+    
     public void tick(MinecraftClient client) {
         ticksSinceUpdate++;
         
-        if (ticksSinceUpdate >= updateInterval) {
-            sendStateUpdate(client);
+        if (reportMode == ReportMode.ADAPTIVE) {
+            tickAdaptive(client);
+        } else if (ticksSinceUpdate >= updateInterval) {
+            if (current.capture(client, MCAIAgentMod.getInstance().getInventoryIndex())) {
+                sendStateUpdate();
+            }
             ticksSinceUpdate = 0;
         }
     }
     
-    private void sendStateUpdate(MinecraftClient client) {
-        ClientPlayerEntity player = client.player;
-        if (player == null) return;
+    private void tickAdaptive(MinecraftClient client) {
+        if (ticksSinceUpdate < minInterval) return;
         
-        JsonObject state = new JsonObject();
+        // Capturing is allocation-free, so checking every tick is cheap
+        if (!current.capture(client, MCAIAgentMod.getInstance().getInventoryIndex())) return;
         
-        // Player position
-        JsonObject position = new JsonObject();
-        position.addProperty("x", player.getX());
-        position.addProperty("y", player.getY());
-        position.addProperty("z", player.getZ());
-        state.add("position", position);
-        
-        // Player health and hunger
-        state.addProperty("health", player.getHealth());
-        state.addProperty("hunger", player.getHungerManager().getFoodLevel());
-        state.addProperty("saturation", player.getHungerManager().getSaturationLevel());
-        
-        // Player inventory
-        JsonArray inventory = new JsonArray();
-        for (int i = 0; i < player.getInventory().size(); i++) {
-            ItemStack stack = player.getInventory().getStack(i);
-            if (!stack.isEmpty()) {
-                JsonObject item = new JsonObject();
-                item.addProperty("slot", i);
-                item.addProperty("item", stack.getItem().toString());
-                item.addProperty("count", stack.getCount());
-                inventory.add(item);
+        if (ticksSinceUpdate >= maxInterval
+            || keyframeRequested
+            || current.hasSignificantChange(lastSent, positionThreshold)) {
+            sendStateUpdate();
+            ticksSinceUpdate = 0;
+        }
+    }
+    
+    private void sendStateUpdate() {
+        boolean keyframe = false;
+        if (deltaMode) {
+            keyframe = keyframeRequested
+                || updatesSinceKeyframe >= keyframeInterval
+                || !lastSent.isValid();
+                
+            if (keyframe) {
+                updatesSinceKeyframe = 0;
+                keyframeRequested = false;
+            } else {
+                if (current.diff(lastSent) == 0) {
+                    return; // Nothing changed since the last update
+                }
+                updatesSinceKeyframe++;
             }
+        } else {
+            keyframeRequested = false; // Every update carries the full state
         }
-        state.add("inventory", inventory);
         
-        // Dimension
-        state.addProperty("dimension", player.getWorld().getRegistryKey().getValue().toString());
-        
-        // Game mode
-        if (client.interactionManager != null) {
-            state.addProperty("gameMode", client.interactionManager.getCurrentGameMode().getName());
+        // Queue for the sender thread, which encodes the delta against what it last sent
+        MCAIAgentMod.getInstance().getWebSocketClient().sendStateUpdate(current, keyframe, deltaMode);
+        lastSent.copyFrom(current);
+    }
+    
+    /**
+     * Force the next update to carry the full state
+     */
+    public void requestKeyframe() {
+        this.keyframeRequested = true;
+    }
+    
+    public void setDeltaMode(boolean enabled) {
+        if (enabled && !deltaMode) {
+            keyframeRequested = true;
         }
-        
-        // Send to backend
-        MCAIAgentMod.getInstance().getWebSocketClient().sendStateUpdate(state);
+        this.deltaMode = enabled;
+    }
+    
+    public boolean isDeltaMode() {
+        return deltaMode;
+    }
+    
+    public void setKeyframeInterval(int updates) {
+        this.keyframeInterval = Math.max(1, updates);
     }
     
     public void setUpdateInterval(int ticks) {
-        this.updateInterval = ticks;
+        this.updateInterval = Math.max(1, ticks);
+    }
+    
+    public void setReportMode(ReportMode mode) {
+        this.reportMode = mode;
+    }
+    
+    public ReportMode getReportMode() {
+        return reportMode;
+    }
+    
+    /**
+     * Bounds for adaptive reporting, in ticks
+     */
+    public void setAdaptiveIntervals(int minTicks, int maxTicks) {
+        this.minInterval = Math.max(1, minTicks);
+        this.maxInterval = Math.max(this.minInterval, maxTicks);
+    }
+    
+    public int getMinInterval() {
+        return minInterval;
+    }
+    
+    public int getMaxInterval() {
+        return maxInterval;
+    }
+    
+    public void setPositionThreshold(double blocks) {
+        this.positionThreshold = Math.max(0, blocks);
     }
 }
@@ -0,0 +1,152 @@
+package com.helixyt2.mcaiagent;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps how much of each client tick the mod takes from the game.
+ *
+ * The tick's fixed work (state capture, action ticks) runs first. Everything
+ * that can wait is submitted as a resumable task; tasks run round-robin in
+ * whatever is left of the budget, yield once it is spent and carry on from
+ * where they stopped next tick. At least one task gets a step every tick,
+ * even when the fixed work used up the budget, so deferred work always
+ * advances. Ticks that still go over the budget are counted as overruns.
+ *
+ * Client thread only, except for the budget setting and the counters.
+ */
+public class TickScheduler {
+    public static final long DEFAULT_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(2); // Of a 50 ms tick
+    public static final long MIN_BUDGET_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    
+    /**
+     * Resumable work. Implementations do small steps and check the budget
+     * after each one, so a run always makes progress.
+     */
+    @FunctionalInterface
+    public interface Task {
+        /**
+         * Work until finished or until the budget is spent. Returns true once
+         * finished; otherwise the task is run again next tick.
+         */
+        boolean run(Budget budget);
+    }
+    
+    /**
+     * What is left of the current tick's budget
+     */
+    public static final class Budget {
+        private long deadline;
+        
+        public boolean hasTime() {
+            return System.nanoTime() - deadline < 0;
+        }
+        
+        public long remainingNanos() {
+            return Math.max(0, deadline - System.nanoTime());
+        }
+    }
+    
+    private final ArrayDeque<Task> tasks = new ArrayDeque<>();
+    private final Budget budget = new Budget();
+    private volatile long budgetNanos = DEFAULT_BUDGET_NANOS;
+    private long tickStart;
+    
+    // Written on the client thread, read by the metrics export
+    private volatile int pendingTasks; // tasks.size(), which is not safe to read off the client thread
+    private volatile long ticks;
+    private volatile long overrunTicks;
+    private volatile long totalOverrunNanos;
+    private volatile long worstOverrunNanos;
+    private volatile long lastTickNanos;
+    
+    /**
+     * Queue a task; it first runs on the next tick with budget to spare
+     */
+    public void submit(Task task) {
+        tasks.add(task);
+        pendingTasks = tasks.size();
+    }
+    
+    /**
+     * Start the tick's budget. Called before the tick's fixed work, so that
+     * work is counted against it.
+     */
+    public void beginTick() {
+        tickStart = System.nanoTime();
+        budget.deadline = tickStart + budgetNanos;
+    }
+    
+    /**
+     * Run queued tasks in what is left of the budget, then close the tick
+     */
+    public void runTasks() {
+        // Each task at most once per tick, so one busy task cannot starve the others;
+        // the first one runs even if the budget is already spent
+        int count = tasks.size();
+        for (int i = 0; i < count && (i == 0 || budget.hasTime()); i++) {
+            Task task = tasks.poll();
+            boolean finished;
+            try {
+                finished = task.run(budget);
+            } catch (Exception e) {
+                MCAIAgentMod.LOGGER.error("Scheduled task failed", e);
+                finished = true;
+            }
+            if (!finished) {
+                tasks.add(task);
+            }
+        }
+        
+        pendingTasks = tasks.size();
+        long used = System.nanoTime() - tickStart;
+        lastTickNanos = used;
+        ticks++;
+        long overrun = used - budgetNanos;
+        if (overrun > 0) {
+            overrunTicks++;
+            totalOverrunNanos += overrun;
+            if (overrun > worstOverrunNanos) {
+                worstOverrunNanos = overrun;
+            }
+        }
+    }
+    
+    /**
+     * Set the per-tick budget, raised to MIN_BUDGET_NANOS if smaller
+     */
+    public void setBudgetNanos(long nanos) {
+        this.budgetNanos = Math.max(MIN_BUDGET_NANOS, nanos);
+    }
+    
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+    
+    public int getPendingTasks() {
+        return pendingTasks;
+    }
+    
+    public long getTicks() {
+        return ticks;
+    }
+    
+    public long getOverrunTicks() {
+        return overrunTicks;
+    }
+    
+    public long getTotalOverrunNanos() {
+        return totalOverrunNanos;
+    }
+    
+    public long getWorstOverrunNanos() {
+        return worstOverrunNanos;
+    }
+    
+    /**
+     * Time the mod spent in the last tick, fixed work and tasks together
+     */
+    public long getLastTickNanos() {
+        return lastTickNanos;
+    }
+}
@@ -1,21 +1,40 @@
 package com.helixyt2.mcaiagent;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
-import org.java_websocket.client.WebSocketClient;
+import com.helixyt2.mcaiagent.automation.MiningAutomation;
+import com.helixyt2.mcaiagent.network.BinaryFrameEncoder;
+import com.helixyt2.mcaiagent.network.OutboundSender;
+import com.helixyt2.mcaiagent.state.StateSnapshot;
+import com.helixyt2.mcaiagent.world.OreLocator;
+import net.minecraft.block.Block;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ClientPlayerEntity;
+import net.minecraft.util.math.BlockPos;
 import org.java_websocket.handshake.ServerHandshake;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Set;
 
-public class WebSocketClient extends WebSocketClient {
+public class WebSocketClient extends org.java_websocket.client.WebSocketClient {
     private static final Gson gson = new Gson();
-    private boolean isRegistered = false;
+    private volatile boolean isRegistered = false;
     private String instanceId;
     
+    // Negotiated during register(); JSON text frames are the fallback
+    private volatile boolean binaryFrames = false;
+    
+    // Serialization and socket writes happen on the sender thread
+    private final OutboundSender sender;
+    
     public WebSocketClient(String serverUri) {
         super(createURI(serverUri));
         this.instanceId = generateInstanceId();
+        this.sender = new OutboundSender(this);
+        this.sender.start();
     }
     
     private static URI createURI(String serverUri) {
@@ -46,6 +65,10 @@ public class WebSocketClient extends WebSocketClient {
             switch (type) {
                 case "registered":
                     isRegistered = true;
+                    binaryFrames = json.has("encoding")
+                        && BinaryFrameEncoder.ENCODING_NAME.equals(json.get("encoding").getAsString());
+                    // A new session has no delta baseline
+                    MCAIAgentMod.getInstance().getStateManager().requestKeyframe();
                     MCAIAgentMod.LOGGER.info("Successfully registered with backend");
                     break;
                     
@@ -54,8 +77,43 @@ public class WebSocketClient extends WebSocketClient {
                     handleAction(action);
                     break;
                     
+                case "execute_batch":
+                    MCAIAgentMod.getInstance().getActionExecutor().queueBatch(json);
+                    break;
+                    
                 case "stop":
-                    MCAIAgentMod.getInstance().getActionExecutor().stopAll();
+                    // Running actions are ticked on the client thread
+                    MinecraftClient.getInstance().execute(() -> MCAIAgentMod.getInstance().getActionExecutor().stopAll());
+                    break;
+                    
+                case "cancel":
+                    MinecraftClient.getInstance().execute(() -> handleCancel(json));
+                    break;
+                    
+                case "state_config":
+                    handleStateConfig(json);
+                    break;
+                    
+                case "scheduler_config":
+                    handleSchedulerConfig(json);
+                    break;
+                    
+                case "metrics":
+                    // Histograms are safe to read from this thread
+                    sendMetrics(json.has("reset") && json.get("reset").getAsBoolean());
+                    break;
+                    
+                case "metrics_config":
+                    handleMetricsConfig(json);
+                    break;
+                    
+                case "request_keyframe":
+                    MCAIAgentMod.getInstance().getStateManager().requestKeyframe();
+                    break;
+                    
+                case "locate":
+                    // The block index belongs to the client thread
+                    MinecraftClient.getInstance().execute(() -> handleLocate(json));
                     break;
                     
                 default:
@@ -70,6 +128,7 @@ public class WebSocketClient extends WebSocketClient {
     public void onClose(int code, String reason, boolean remote) {
         MCAIAgentMod.LOGGER.info("Disconnected from backend: " + reason);
         isRegistered = false;
+        binaryFrames = false;
         
         // Try to reconnect after 5 seconds
         new Thread(() -> {
@@ -92,6 +151,12 @@ public class WebSocketClient extends WebSocketClient {
         message.addProperty("type", "register");
         message.addProperty("instanceId", instanceId);
         message.addProperty("version", "1.21.5");
+        
+        // Offer binary frames; the backend picks one in its "registered" reply
+        JsonArray encodings = new JsonArray();
+        encodings.add("json");
+        encodings.add(BinaryFrameEncoder.ENCODING_NAME);
+        message.add("encodings", encodings);
         send(message.toString());
     }
     
@@ -99,49 +164,208 @@ public class WebSocketClient extends WebSocketClient {
         MCAIAgentMod.getInstance().getActionExecutor().queueAction(action);
     }
     
-    public void sendStateUpdate(JsonObject state) {
-        if (!isRegistered) return;
+    private void handleStateConfig(JsonObject config) {
+        StateManager stateManager = MCAIAgentMod.getInstance().getStateManager();
+        if (config.has("keyframeInterval")) {
+            stateManager.setKeyframeInterval(config.get("keyframeInterval").getAsInt());
+        }
+        if (config.has("delta")) {
+            stateManager.setDeltaMode(config.get("delta").getAsBoolean());
+        }
+        if (config.has("updateInterval")) {
+            stateManager.setUpdateInterval(config.get("updateInterval").getAsInt());
+        }
+        if (config.has("minInterval") || config.has("maxInterval")) {
+            int min = config.has("minInterval") ? config.get("minInterval").getAsInt() : stateManager.getMinInterval();
+            int max = config.has("maxInterval") ? config.get("maxInterval").getAsInt() : stateManager.getMaxInterval();
+            stateManager.setAdaptiveIntervals(min, max);
+        }
+        if (config.has("positionThreshold")) {
+            stateManager.setPositionThreshold(config.get("positionThreshold").getAsDouble());
+        }
+        if (config.has("mode")) {
+            String mode = config.get("mode").getAsString();
+            try {
+                stateManager.setReportMode(StateManager.ReportMode.valueOf(mode.toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                MCAIAgentMod.LOGGER.warn("Unknown state report mode: " + mode);
+            }
+        }
+    }
+    
+    private void handleSchedulerConfig(JsonObject config) {
+        if (config.has("tickBudgetNanos")) {
+            MCAIAgentMod.getInstance().getTickScheduler().setBudgetNanos(config.get("tickBudgetNanos").getAsLong());
+        }
+    }
+    
+    private void handleMetricsConfig(JsonObject config) {
+        ActionExecutor executor = MCAIAgentMod.getInstance().getActionExecutor();
+        if (config.has("interval")) {
+            executor.setMetricsInterval(config.get("interval").getAsInt());
+        }
+        if (config.has("reset")) {
+            executor.setMetricsReset(config.get("reset").getAsBoolean());
+        }
+    }
+    
+    /**
+     * actionId alone cancels an action sent on its own, batchId alone a whole
+     * batch, and both together one action of a batch
+     */
+    private void handleCancel(JsonObject message) {
+        ActionExecutor executor = MCAIAgentMod.getInstance().getActionExecutor();
+        String batchId = message.has("batchId") ? message.get("batchId").getAsString() : null;
+        if (message.has("actionId")) {
+            String actionId = message.get("actionId").getAsString();
+            if (!executor.cancel(batchId, actionId)) {
+                MCAIAgentMod.LOGGER.warn("No pending action to cancel: " + actionId);
+            }
+        } else if (batchId != null) {
+            if (!executor.cancelBatch(batchId)) {
+                MCAIAgentMod.LOGGER.warn("No unfinished batch to cancel: " + batchId);
+            }
+        }
+    }
+    
+    private void handleLocate(JsonObject query) {
+        JsonObject reply = new JsonObject();
+        reply.addProperty("type", "locate_result");
+        if (query.has("requestId")) {
+            reply.add("requestId", query.get("requestId"));
+        }
+        String target = query.has("target") ? query.get("target").getAsString() : "";
+        int count = query.has("count") ? query.get("count").getAsInt() : 1;
+        int maxDistance = query.has("maxDistance") ? query.get("maxDistance").getAsInt() : MiningAutomation.SEARCH_RADIUS;
+        boolean ordered = query.has("ordered") && query.get("ordered").getAsBoolean();
+        reply.addProperty("target", target);
         
-        JsonObject message = new JsonObject();
-        message.addProperty("type", "state_update");
-        message.addProperty("instanceId", instanceId);
-        message.add("data", state);
-        send(message.toString());
+        ClientPlayerEntity player = MinecraftClient.getInstance().player;
+        OreLocator locator = MCAIAgentMod.getInstance().getOreLocator();
+        Set<Block> blocks = locator.resolveBlocks(target);
+        JsonArray positions = new JsonArray();
+        if (player == null) {
+            reply.addProperty("error", "Not in a world");
+        } else if (blocks.isEmpty()) {
+            reply.addProperty("error", "Unknown block: " + target);
+        } else if (!OreLocator.isIndexed(blocks.iterator().next())) {
+            reply.addProperty("error", target + " is not tracked by the block index");
+        } else {
+            BlockPos origin = player.getBlockPos();
+            List<BlockPos> found = locator.findNearest(blocks, origin, count, maxDistance);
+            if (ordered) {
+                found = OreLocator.planVisits(origin, found);
+            }
+            for (BlockPos pos : found) {
+                JsonObject entry = new JsonObject();
+                entry.addProperty("x", pos.getX());
+                entry.addProperty("y", pos.getY());
+                entry.addProperty("z", pos.getZ());
+                entry.addProperty("distance", Math.sqrt(pos.getSquaredDistance(origin)));
+                positions.add(entry);
+            }
+        }
+        reply.add("positions", positions);
+        
+        sendReply(reply);
+    }
+    
+    /**
+     * Queue a state snapshot for the sender thread. The snapshot is copied,
+     * so the caller may reuse it. Must be called from the client thread.
+     *
+     * @param keyframe send the full state even in delta mode
+     * @param delta    whether delta mode is on
+     */
+    public void sendStateUpdate(StateSnapshot state, boolean keyframe, boolean delta) {
+        if (!isRegistered) return;
+        sender.enqueueState(state, keyframe, delta);
     }
     
     public void sendActionComplete(String actionId, JsonObject result) {
+        sendActionComplete(actionId, result, null);
+    }
+    
+    /**
+     * @param onSent run on the sender thread once the frame is written, or null
+     */
+    public void sendActionComplete(String actionId, JsonObject result, Runnable onSent) {
         if (!isRegistered) return;
-        
-        JsonObject message = new JsonObject();
-        message.addProperty("type", "action_complete");
-        message.addProperty("instanceId", instanceId);
-        message.addProperty("actionId", actionId);
-        message.add("result", result);
-        send(message.toString());
+        sender.enqueueActionComplete(actionId, result, onSent);
     }
     
     public void sendActionFailed(String actionId, String error) {
+        sendActionFailed(actionId, error, null);
+    }
+    
+    public void sendActionFailed(String actionId, String error, Runnable onSent) {
         if (!isRegistered) return;
-        
+        sender.enqueueActionFailed(actionId, error, onSent);
+    }
+    
+    /**
+     * Send a JSON message outside the action frames (query replies, batch
+     * updates); always a text frame. The instance id is added.
+     */
+    public void sendReply(JsonObject message) {
+        sendReply(message, null);
+    }
+    
+    public void sendReply(JsonObject message, Runnable onSent) {
+        if (!isRegistered) return;
+        sender.enqueueReply(message, onSent);
+    }
+    
+    /**
+     * Send the action metrics and tick scheduler counters as a metrics message
+     *
+     * @param reset start a new measuring interval
+     */
+    public void sendMetrics(boolean reset) {
         JsonObject message = new JsonObject();
-        message.addProperty("type", "action_failed");
-        message.addProperty("instanceId", instanceId);
-        message.addProperty("actionId", actionId);
-        message.addProperty("error", error);
-        send(message.toString());
+        message.addProperty("type", "metrics");
+        message.add("actions", MCAIAgentMod.getInstance().getActionExecutor().getMetrics().toJson(reset));
+        
+        TickScheduler scheduler = MCAIAgentMod.getInstance().getTickScheduler();
+        JsonObject ticks = new JsonObject();
+        ticks.addProperty("budgetNanos", scheduler.getBudgetNanos());
+        ticks.addProperty("ticks", scheduler.getTicks());
+        ticks.addProperty("overrunTicks", scheduler.getOverrunTicks());
+        ticks.addProperty("totalOverrunNanos", scheduler.getTotalOverrunNanos());
+        ticks.addProperty("worstOverrunNanos", scheduler.getWorstOverrunNanos());
+        ticks.addProperty("lastTickNanos", scheduler.getLastTickNanos());
+        ticks.addProperty("pendingTasks", scheduler.getPendingTasks());
+        message.add("scheduler", ticks);
+        
+        sendReply(message);
     }
     
     public void sendLog(String logMessage) {
         if (!isRegistered) return;
-        
-        JsonObject message = new JsonObject();
-        message.addProperty("type", "log");
-        message.addProperty("instanceId", instanceId);
-        message.addProperty("message", logMessage);
-        send(message.toString());
+        sender.enqueueLog(logMessage);
+    }
+    
+    public boolean isRegistered() {
+        return isRegistered;
+    }
+    
+    public boolean isBinaryFrames() {
+        return binaryFrames;
+    }
+    
+    public String getInstanceId() {
+        return instanceId;
+    }
+    
+    /**
+     * Whether earlier frames are still waiting to be written to the socket
+     */
+    public boolean isBackedUp() {
+        return isOpen() && getConnection().hasBufferedData();
     }
     
     public void disconnect() {
+        sender.stop();
         if (isOpen()) {
             close();
         }
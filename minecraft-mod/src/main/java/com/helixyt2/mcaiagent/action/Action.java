@@ -0,0 +1,13 @@
+package com.helixyt2.mcaiagent.action;
+
+/**
+ * An action as received from the backend, parsed from its JSON once when it
+ * arrives. Implementations are immutable records; the handler registered for
+ * the action's type runs it.
+ */
+public interface Action {
+    /**
+     * Id the backend gave the action, "unknown" if it had none
+     */
+    String id();
+}
@@ -0,0 +1,261 @@
+package com.helixyt2.mcaiagent.action;
+
+import com.google.gson.JsonObject;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Vec3d;
+
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * A parsed action bound to its handler, plus the state of its run: how many
+ * ticks it has been running, its scheduling fields, the result fields it
+ * reports on completion and the lifecycle times kept for the metrics.
+ */
+public final class ActionContext {
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+    
+    /**
+     * Order actions are started in: higher priority first, then the earlier
+     * deadline, then arrival order
+     */
+    public static final Comparator<ActionContext> SCHEDULE_ORDER = Comparator
+        .comparingInt((ActionContext context) -> -context.priority)
+        .thenComparingLong(context -> context.deadline)
+        .thenComparingLong(context -> context.sequence);
+        
+    private final String type;
+    private final Action action;
+    private final ActionHandler<Action> handler;
+    private final EnumSet<Resource> resources;
+    private final long sequence; // Arrival order
+    private final int priority;
+    private final long deadline; // System.nanoTime() the action must be done by
+    private int ticks = 0;
+    private boolean suspended = false;
+    private boolean finished = false; // Completed, failed or canceled
+    private boolean prepared = false; // Look-ahead done while queued
+    private Object attachment; // Handler state carried across a suspension
+    private Batch batch; // Null unless the action came in an execute_batch
+    private final JsonObject result = new JsonObject(); // Extra fields for action_complete
+    
+    // Lifecycle, as System.nanoTime()
+    private long queuedAt = System.nanoTime();
+    private long startedAt;
+    private long doneAt;
+    private boolean started = false;
+    private Vec3d startPosition;
+    private int startInventory;
+    private int progressTicks = 0; // Ticks until the first observed progress, 0 until then
+    
+    ActionContext(String type, Action action, ActionHandler<Action> handler, Set<Resource> resources,
+                  long sequence, int priority, long deadline) {
+        this.type = type;
+        this.action = action;
+        this.handler = handler;
+        this.resources = resources.isEmpty() ? EnumSet.noneOf(Resource.class) : EnumSet.copyOf(resources);
+        this.sequence = sequence;
+        this.priority = priority;
+        this.deadline = deadline;
+    }
+    
+    /**
+     * Run the handler for one tick. Returns true once the action is done.
+     */
+    public boolean tick(MinecraftClient client) {
+        ticks++;
+        return handler.tick(client, action, this);
+    }
+    
+    public boolean canSuspend() {
+        return handler.canSuspend(action, this);
+    }
+    
+    public void suspend() {
+        handler.suspend(action, this);
+        suspended = true;
+    }
+    
+    public void resume() {
+        suspended = false;
+        handler.resume(action, this);
+    }
+    
+    /**
+     * Stop what the action started if it is running; it is finished afterwards.
+     * A suspended action already let go in suspend(), and whatever now holds its
+     * resources (e.g. the urgent action's navigation) must not be stopped.
+     */
+    public void cancel() {
+        if (ticks > 0 && !suspended) {
+            handler.cancel(action, this);
+        }
+        finished = true;
+    }
+    
+    public void markFinished() {
+        finished = true;
+    }
+    
+    /**
+     * Where the player should be once the action is done, see {@link ActionHandler#predictEnd}
+     */
+    public BlockPos predictEnd(BlockPos start) {
+        return handler.predictEnd(action, start);
+    }
+    
+    /**
+     * Prepare the queued action from the predicted start, until the handler
+     * reports it done
+     */
+    public void prepare(BlockPos start) {
+        if (!prepared) {
+            prepared = handler.prepare(action, start);
+        }
+    }
+    
+    public boolean isPrepared() {
+        return prepared;
+    }
+    
+    /**
+     * Restart the queue wait, for actions that only now became runnable
+     * (batch actions whose dependencies just finished)
+     */
+    public void markQueued(long now) {
+        queuedAt = now;
+    }
+    
+    /**
+     * Note the first start, with the player's position and inventory version
+     * to measure progress against
+     */
+    public void markStarted(long now, Vec3d position, int inventoryVersion) {
+        startedAt = now;
+        startPosition = position;
+        startInventory = inventoryVersion;
+        started = true;
+    }
+    
+    /**
+     * Record progress if the player moved a block away from where the action
+     * started or the inventory changed. Returns true only when progress is
+     * seen for the first time.
+     */
+    public boolean observeProgress(Vec3d position, int inventoryVersion) {
+        if (!started || progressTicks != 0) {
+            return false;
+        }
+        if (position.squaredDistanceTo(startPosition) < 1 && inventoryVersion == startInventory) {
+            return false;
+        }
+        progressTicks = ticks;
+        return true;
+    }
+    
+    /**
+     * Record progress now (e.g. on completion). Returns true only if no
+     * progress was seen before.
+     */
+    public boolean markProgress() {
+        if (!started || progressTicks != 0) {
+            return false;
+        }
+        progressTicks = Math.max(1, ticks);
+        return true;
+    }
+    
+    public void markDone(long now) {
+        doneAt = now;
+    }
+    
+    public long getQueuedAt() {
+        return queuedAt;
+    }
+    
+    public boolean isStarted() {
+        return started;
+    }
+    
+    public long getStartedAt() {
+        return startedAt;
+    }
+    
+    public long getDoneAt() {
+        return doneAt;
+    }
+    
+    public int getProgressTicks() {
+        return progressTicks;
+    }
+    
+    public String getType() {
+        return type;
+    }
+    
+    public Action getAction() {
+        return action;
+    }
+    
+    public String getId() {
+        return action.id();
+    }
+    
+    /**
+     * Resources held while the action runs
+     */
+    public EnumSet<Resource> getResources() {
+        return resources;
+    }
+    
+    public int getPriority() {
+        return priority;
+    }
+    
+    public boolean isExpired(long now) {
+        return deadline != NO_DEADLINE && now - deadline > 0;
+    }
+    
+    /**
+     * Ticks the action has run, counting the current one (1 on its first tick).
+     * Ticks spent suspended do not count.
+     */
+    public int getTicks() {
+        return ticks;
+    }
+    
+    public boolean isFirstTick() {
+        return ticks == 1;
+    }
+    
+    public boolean isSuspended() {
+        return suspended;
+    }
+    
+    public boolean isFinished() {
+        return finished;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public <T> T getAttachment() {
+        return (T) attachment;
+    }
+    
+    public void setAttachment(Object attachment) {
+        this.attachment = attachment;
+    }
+    
+    public Batch getBatch() {
+        return batch;
+    }
+    
+    void setBatch(Batch batch) {
+        this.batch = batch;
+    }
+    
+    public JsonObject getResult() {
+        return result;
+    }
+}
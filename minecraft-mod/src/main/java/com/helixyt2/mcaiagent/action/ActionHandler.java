@@ -0,0 +1,117 @@
+package com.helixyt2.mcaiagent.action;
+
+import com.google.gson.JsonObject;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Parses and runs one action type. Register implementations with the
+ * {@link ActionRegistry} to add new action types.
+ */
+public interface ActionHandler<A extends Action> {
+    /**
+     * Build the typed action from its JSON. Called once, on the WebSocket
+     * thread; throw IllegalArgumentException for bad parameters.
+     */
+    A parse(String id, JsonObject json);
+    
+    /**
+     * Advance the action by one client tick. Returns true once it is done;
+     * throwing fails the action with the exception's message.
+     */
+    boolean tick(MinecraftClient client, A action, ActionContext context);
+    
+    /**
+     * Resources the action holds while it runs. Defaults to all of them, so
+     * actions of a handler that does not say run alone.
+     */
+    default Set<Resource> resources(A action) {
+        return EnumSet.allOf(Resource.class);
+    }
+    
+    /**
+     * Whether the running action can be paused right now for a more urgent one.
+     * Defaults to false: the urgent action waits for it to finish.
+     */
+    default boolean canSuspend(A action, ActionContext context) {
+        return false;
+    }
+    
+    /**
+     * Pause the action; it is not ticked until resume()
+     */
+    default void suspend(A action, ActionContext context) {
+    }
+    
+    /**
+     * Pick a suspended action up again, before its next tick
+     */
+    default void resume(A action, ActionContext context) {
+    }
+    
+    /**
+     * Stop whatever a running action started, when it is canceled or misses
+     * its deadline. Not called for suspended actions.
+     */
+    default void cancel(A action, ActionContext context) {
+    }
+    
+    /**
+     * Where the player should be once the action is done, given where it
+     * starts. Defaults to the start: the action does not move the player.
+     */
+    default BlockPos predictEnd(A action, BlockPos start) {
+        return start;
+    }
+    
+    /**
+     * Get ready for the action while it still waits in the queue (look up
+     * recipes, search paths), assuming it starts at the given position.
+     * Called on the client thread; slow work belongs on a worker or the tick
+     * scheduler. Returns false to be asked again next tick.
+     */
+    default boolean prepare(A action, BlockPos start) {
+        return true;
+    }
+    
+    /**
+     * Turns an action's parser and tick method into a handler whose actions
+     * hold the given resources
+     */
+    static <A extends Action> SimpleActionHandler<A> of(Parser<A> parser, Step<A> step, Set<Resource> resources) {
+        return new SimpleActionHandler<>(parser, step, resources);
+    }
+    
+    @FunctionalInterface
+    interface Parser<A extends Action> {
+        A parse(String id, JsonObject json);
+    }
+    
+    @FunctionalInterface
+    interface Step<A extends Action> {
+        boolean tick(MinecraftClient client, A action, ActionContext context);
+    }
+    
+    @FunctionalInterface
+    interface Hook<A extends Action> {
+        void run(A action, ActionContext context);
+    }
+    
+    @FunctionalInterface
+    interface Check<A extends Action> {
+        boolean test(A action, ActionContext context);
+    }
+    
+    @FunctionalInterface
+    interface Predict<A extends Action> {
+        BlockPos end(A action, BlockPos start);
+    }
+    
+    @FunctionalInterface
+    interface Prepare<A extends Action> {
+        boolean prepare(A action, BlockPos start);
+    }
+}
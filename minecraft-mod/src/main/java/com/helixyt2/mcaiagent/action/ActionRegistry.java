@@ -0,0 +1,75 @@
+package com.helixyt2.mcaiagent.action;
+
+import com.google.gson.JsonObject;
+import com.helixyt2.mcaiagent.MCAIAgentMod;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Handlers by action type. Incoming actions are parsed here on the WebSocket
+ * thread and bound to their handler, so running them needs no lookups.
+ */
+public class ActionRegistry {
+    private final Map<String, ActionHandler<?>> handlers = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    
+    /**
+     * Add or replace the handler for an action type
+     */
+    public <A extends Action> void register(String type, ActionHandler<A> handler) {
+        if (handlers.put(type, handler) != null) {
+            MCAIAgentMod.LOGGER.info("Replaced handler for action type " + type);
+        }
+    }
+    
+    public boolean isRegistered(String type) {
+        return handlers.containsKey(type);
+    }
+    
+    /**
+     * Parse an action's JSON into a context ready to run. Throws
+     * IllegalArgumentException for unknown types and bad parameters.
+     * Besides its own parameters every action may carry:
+     * "exclusive": true to hold every resource, so it waits for everything
+     * queued before it; "priority" (default 0, higher runs first); and
+     * "deadline", milliseconds from now by which it must be done.
+     */
+    @SuppressWarnings("unchecked")
+    public ActionContext parse(JsonObject json) {
+        String id = idOf(json);
+        if (!json.has("type")) {
+            throw new IllegalArgumentException("Action has no type");
+        }
+        String type = json.get("type").getAsString();
+        ActionHandler<Action> handler = (ActionHandler<Action>) handlers.get(type);
+        if (handler == null) {
+            throw new IllegalArgumentException("Unknown action type: " + type);
+        }
+        
+        try {
+            Action action = handler.parse(id, json);
+            boolean exclusive = json.has("exclusive") && json.get("exclusive").getAsBoolean();
+            int priority = json.has("priority") ? json.get("priority").getAsInt() : 0;
+            long deadline = ActionContext.NO_DEADLINE;
+            if (json.has("deadline")) {
+                deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(json.get("deadline").getAsLong());
+            }
+            return new ActionContext(type, action, handler,
+                exclusive ? EnumSet.allOf(Resource.class) : handler.resources(action),
+                sequence.getAndIncrement(), priority, deadline);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            // Gson throws a mix of exceptions for values of the wrong kind
+            throw new IllegalArgumentException("Bad parameters for " + type + ": " + e.getMessage(), e);
+        }
+    }
+    
+    public static String idOf(JsonObject json) {
+        return json.has("id") ? json.get("id").getAsString() : "unknown";
+    }
+}
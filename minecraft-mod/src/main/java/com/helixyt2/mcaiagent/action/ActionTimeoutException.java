@@ -0,0 +1,11 @@
+package com.helixyt2.mcaiagent.action;
+
+/**
+ * Thrown from a handler's tick when the action gave up waiting. Fails the
+ * action as timed out; its cancel hook stops whatever it left running.
+ */
+public class ActionTimeoutException extends IllegalStateException {
+    public ActionTimeoutException(String message) {
+        super(message);
+    }
+}
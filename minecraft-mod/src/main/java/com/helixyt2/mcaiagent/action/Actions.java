@@ -0,0 +1,108 @@
+package com.helixyt2.mcaiagent.action;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.helixyt2.mcaiagent.automation.SmeltingAutomation;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The built-in action types, each with the parser that reads it from JSON.
+ * Parameter names and defaults are the ones documented in PROTOCOL.md.
+ */
+public final class Actions {
+    private Actions() {
+    }
+    
+    public record Goto(String id, BlockPos target) implements Action {
+        public static Goto parse(String id, JsonObject json) {
+            return new Goto(id, new BlockPos(getInt(json, "x", 0), getInt(json, "y", 64), getInt(json, "z", 0)));
+        }
+    }
+    
+    public record FollowPath(String id, List<BlockPos> waypoints) implements Action {
+        public FollowPath {
+            waypoints = List.copyOf(waypoints);
+        }
+        
+        public static FollowPath parse(String id, JsonObject json) {
+            JsonArray array = json.has("waypoints") ? json.getAsJsonArray("waypoints") : new JsonArray();
+            if (array.isEmpty()) {
+                throw new IllegalArgumentException("follow_path needs at least one waypoint");
+            }
+            
+            List<BlockPos> waypoints = new ArrayList<>(array.size());
+            for (int i = 0; i < array.size(); i++) {
+                BlockPos waypoint = getPos(array.get(i).getAsJsonObject());
+                if (waypoint == null) {
+                    throw new IllegalArgumentException("Waypoint " + i + " needs x, y and z");
+                }
+                waypoints.add(waypoint);
+            }
+            return new FollowPath(id, waypoints);
+        }
+    }
+    
+    public record Mine(String id, String target, int quantity) implements Action {
+        public static Mine parse(String id, JsonObject json) {
+            return new Mine(id, getString(json, "target", "stone"), getInt(json, "quantity", 1));
+        }
+    }
+    
+    /**
+     * pos is null if no coordinates were given
+     */
+    public record Place(String id, String block, BlockPos pos) implements Action {
+        public static Place parse(String id, JsonObject json) {
+            return new Place(id, getString(json, "block", ""), getPos(json));
+        }
+    }
+    
+    public record Craft(String id, String recipe, int quantity) implements Action {
+        public static Craft parse(String id, JsonObject json) {
+            return new Craft(id, getString(json, "recipe", "unknown"), getInt(json, "quantity", 1));
+        }
+    }
+    
+    public record Smelt(String id, String item, int quantity, int furnaces) implements Action {
+        public static Smelt parse(String id, JsonObject json) {
+            return new Smelt(id, getString(json, "item", "iron_ore"), getInt(json, "quantity", 1),
+                getInt(json, "furnaces", SmeltingAutomation.DEFAULT_FURNACES));
+        }
+    }
+    
+    /**
+     * pos is null if no coordinates were given
+     */
+    public record Interact(String id, String target, BlockPos pos) implements Action {
+        public static Interact parse(String id, JsonObject json) {
+            return new Interact(id, getString(json, "target", ""), getPos(json));
+        }
+    }
+    
+    public record Chat(String id, String message) implements Action {
+        public static Chat parse(String id, JsonObject json) {
+            return new Chat(id, getString(json, "message", ""));
+        }
+    }
+    
+    public static int getInt(JsonObject json, String key, int fallback) {
+        return json.has(key) ? json.get(key).getAsInt() : fallback;
+    }
+    
+    public static String getString(JsonObject json, String key, String fallback) {
+        return json.has(key) ? json.get(key).getAsString() : fallback;
+    }
+    
+    /**
+     * x, y and z of the object as a block position, or null if any is missing
+     */
+    public static BlockPos getPos(JsonObject json) {
+        if (!json.has("x") || !json.has("y") || !json.has("z")) {
+            return null;
+        }
+        return new BlockPos(json.get("x").getAsInt(), json.get("y").getAsInt(), json.get("z").getAsInt());
+    }
+}
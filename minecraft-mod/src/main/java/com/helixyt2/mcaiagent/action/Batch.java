@@ -0,0 +1,303 @@
+package com.helixyt2.mcaiagent.action;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A plan sent in one execute_batch message: actions with dependency edges
+ * between them. An action is released to the scheduler once everything it
+ * depends on is done, so independent branches run side by side. Node
+ * results are collected here and sent in aggregated batch_update frames.
+ *
+ * Parsed on the WebSocket thread; used on the client thread afterwards.
+ */
+public class Batch {
+    public enum FailurePolicy {
+        ABORT,           // Cancel the whole batch
+        SKIP_DEPENDENTS, // Skip what depends on the failed action, keep running the rest
+        CONTINUE         // Treat the failed action as done
+    }
+    
+    private enum NodeStatus {
+        BLOCKED,   // Waiting for dependencies
+        RELEASED,  // Handed to the scheduler
+        COMPLETED,
+        FAILED,
+        SKIPPED,
+        CANCELED
+    }
+    
+    private static final class Node {
+        final ActionContext action;
+        final FailurePolicy onFailure;
+        final List<Node> dependents = new ArrayList<>();
+        int unmet;
+        NodeStatus status = NodeStatus.BLOCKED;
+        
+        Node(ActionContext action, FailurePolicy onFailure) {
+            this.action = action;
+            this.onFailure = onFailure;
+        }
+    }
+    
+    private final String id;
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+    private final List<ActionContext> released = new ArrayList<>(); // Ready, not yet taken by the scheduler
+    private JsonArray pendingResults = new JsonArray(); // Not yet sent
+    private int unfinished;
+    private boolean aborting;
+    private int completed;
+    private int failed;
+    private int skipped;
+    private int canceled;
+    
+    private Batch(String id) {
+        this.id = id;
+    }
+    
+    /**
+     * Parse an execute_batch message. Every action needs an id that is unique
+     * in the batch; "dependsOn" lists ids of the same batch and
+     * "onFailure" overrides the batch's "failurePolicy". Throws
+     * IllegalArgumentException for bad actions, unknown dependencies and cycles.
+     */
+    public static Batch parse(JsonObject json, ActionRegistry registry) {
+        Batch batch = new Batch(json.has("batchId") ? json.get("batchId").getAsString() : "unknown");
+        FailurePolicy defaultPolicy = policy(json, "failurePolicy", FailurePolicy.SKIP_DEPENDENTS);
+        JsonArray actions = json.has("actions") ? json.getAsJsonArray("actions") : new JsonArray();
+        if (actions.isEmpty()) {
+            throw new IllegalArgumentException("Batch has no actions");
+        }
+        
+        for (JsonElement element : actions) {
+            JsonObject action = element.getAsJsonObject();
+            if (!action.has("id")) {
+                throw new IllegalArgumentException("Every batch action needs an id");
+            }
+            String nodeId = action.get("id").getAsString();
+            if (batch.nodes.containsKey(nodeId)) {
+                throw new IllegalArgumentException("Duplicate action id in batch: " + nodeId);
+            }
+            
+            ActionContext context = registry.parse(action);
+            context.setBatch(batch);
+            batch.nodes.put(nodeId, new Node(context, policy(action, "onFailure", defaultPolicy)));
+        }
+        
+        for (JsonElement element : actions) {
+            JsonObject action = element.getAsJsonObject();
+            if (!action.has("dependsOn")) continue;
+            
+            Node node = batch.nodes.get(action.get("id").getAsString());
+            for (JsonElement dependency : action.getAsJsonArray("dependsOn")) {
+                Node before = batch.nodes.get(dependency.getAsString());
+                if (before == null) {
+                    throw new IllegalArgumentException("Unknown dependency " + dependency.getAsString()
+                        + " of " + action.get("id").getAsString());
+                }
+                before.dependents.add(node);
+                node.unmet++;
+            }
+        }
+        
+        batch.checkAcyclic();
+        batch.unfinished = batch.nodes.size();
+        return batch;
+    }
+    
+    private static FailurePolicy policy(JsonObject json, String key, FailurePolicy fallback) {
+        if (!json.has(key)) {
+            return fallback;
+        }
+        String name = json.get(key).getAsString();
+        try {
+            return FailurePolicy.valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown failure policy: " + name);
+        }
+    }
+    
+    /**
+     * Kahn's algorithm: every node must be reachable by peeling off nodes
+     * without unmet dependencies
+     */
+    private void checkAcyclic() {
+        Map<Node, Integer> unmet = new LinkedHashMap<>();
+        Deque<Node> ready = new ArrayDeque<>();
+        for (Node node : nodes.values()) {
+            unmet.put(node, node.unmet);
+            if (node.unmet == 0) {
+                ready.add(node);
+            }
+        }
+        
+        int visited = 0;
+        while (!ready.isEmpty()) {
+            Node node = ready.poll();
+            visited++;
+            for (Node dependent : node.dependents) {
+                if (unmet.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        if (visited < nodes.size()) {
+            throw new IllegalArgumentException("Batch has a dependency cycle");
+        }
+    }
+    
+    /**
+     * Release the actions without dependencies
+     */
+    public void start() {
+        for (Node node : nodes.values()) {
+            if (node.unmet == 0) {
+                release(node);
+            }
+        }
+    }
+    
+    private void release(Node node) {
+        node.status = NodeStatus.RELEASED;
+        released.add(node.action);
+    }
+    
+    /**
+     * Record how a released action ended and release what now has all its
+     * dependencies. A failure is handled by the action's failure policy.
+     */
+    public void onActionDone(ActionContext action, boolean success, String error) {
+        Node node = nodes.get(action.getId());
+        if (node == null || node.action != action || node.status != NodeStatus.RELEASED) return;
+        
+        if (success) {
+            finish(node, NodeStatus.COMPLETED, action.getResult(), null);
+        } else {
+            finish(node, NodeStatus.FAILED, null, error);
+            if (node.onFailure == FailurePolicy.ABORT) {
+                aborting = true;
+                return;
+            }
+            if (node.onFailure == FailurePolicy.SKIP_DEPENDENTS) {
+                skipDependents(node);
+                return;
+            }
+        }
+        
+        for (Node dependent : node.dependents) {
+            if (--dependent.unmet == 0 && dependent.status == NodeStatus.BLOCKED) {
+                release(dependent);
+            }
+        }
+    }
+    
+    private void skipDependents(Node failedNode) {
+        Deque<Node> stack = new ArrayDeque<>(failedNode.dependents);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            if (node.status != NodeStatus.BLOCKED) continue;
+            
+            finish(node, NodeStatus.SKIPPED, null, "Dependency " + failedNode.action.getId() + " failed");
+            stack.addAll(node.dependents);
+        }
+    }
+    
+    /**
+     * Cancel every action that has not finished, giving reason as their error.
+     * Returns the ones already handed to the scheduler, which the caller has
+     * to take back out.
+     */
+    public List<ActionContext> abort(String reason) {
+        aborting = false;
+        released.clear();
+        List<ActionContext> active = new ArrayList<>();
+        for (Node node : nodes.values()) {
+            if (node.status == NodeStatus.RELEASED) {
+                active.add(node.action);
+            } else if (node.status != NodeStatus.BLOCKED) {
+                continue;
+            }
+            finish(node, NodeStatus.CANCELED, null, reason);
+        }
+        return active;
+    }
+    
+    private void finish(Node node, NodeStatus status, JsonObject result, String error) {
+        node.status = status;
+        unfinished--;
+        switch (status) {
+            case COMPLETED -> completed++;
+            case FAILED -> failed++;
+            case SKIPPED -> skipped++;
+            default -> canceled++;
+        }
+        
+        JsonObject entry = new JsonObject();
+        entry.addProperty("id", node.action.getId());
+        entry.addProperty("status", status.name().toLowerCase(Locale.ROOT));
+        if (result != null) {
+            entry.add("result", result);
+        }
+        if (error != null) {
+            entry.addProperty("error", error);
+        }
+        pendingResults.add(entry);
+    }
+    
+    /**
+     * Actions released since the last call
+     */
+    public List<ActionContext> takeReleased() {
+        List<ActionContext> ready = new ArrayList<>(released);
+        released.clear();
+        return ready;
+    }
+    
+    /**
+     * Whether a failure asked for the rest of the batch to be canceled
+     */
+    public boolean isAborting() {
+        return aborting;
+    }
+    
+    public boolean isDone() {
+        return unfinished == 0;
+    }
+    
+    public boolean hasUpdate() {
+        return !pendingResults.isEmpty();
+    }
+    
+    /**
+     * batch_update message with the node results since the last one; the last
+     * update also carries done and the totals
+     */
+    public JsonObject takeUpdate() {
+        JsonObject update = new JsonObject();
+        update.addProperty("type", "batch_update");
+        update.addProperty("batchId", id);
+        update.add("results", pendingResults);
+        pendingResults = new JsonArray();
+        update.addProperty("done", isDone());
+        if (isDone()) {
+            update.addProperty("completed", completed);
+            update.addProperty("failed", failed);
+            update.addProperty("skipped", skipped);
+            update.addProperty("canceled", canceled);
+        }
+        return update;
+    }
+    
+    public String getId() {
+        return id;
+    }
+}
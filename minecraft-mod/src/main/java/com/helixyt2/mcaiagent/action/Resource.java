@@ -0,0 +1,12 @@
+package com.helixyt2.mcaiagent.action;
+
+/**
+ * What an action needs to itself while it runs. Actions whose resources do
+ * not overlap run side by side; actions sharing one run in arrival order.
+ */
+public enum Resource {
+    MOVEMENT, // Movement keys and pathing
+    HANDS,    // Held item, breaking/placing blocks and open screens
+    CHAT,
+    LOOK      // Player rotation
+}
@@ -0,0 +1,98 @@
+package com.helixyt2.mcaiagent.action;
+
+import com.google.gson.JsonObject;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.Set;
+
+/**
+ * Handler assembled from method references, see {@link ActionHandler#of}.
+ * Suspension, cancellation and look-ahead hooks are optional.
+ */
+public final class SimpleActionHandler<A extends Action> implements ActionHandler<A> {
+    private final Parser<A> parser;
+    private final Step<A> step;
+    private final Set<Resource> resources;
+    private Hook<A> onCancel;
+    private Check<A> canSuspend;
+    private Hook<A> onSuspend;
+    private Hook<A> onResume;
+    private Predict<A> predictEnd;
+    private Prepare<A> onPrepare;
+    
+    SimpleActionHandler(Parser<A> parser, Step<A> step, Set<Resource> resources) {
+        this.parser = parser;
+        this.step = step;
+        this.resources = resources;
+    }
+    
+    public SimpleActionHandler<A> onCancel(Hook<A> cancel) {
+        this.onCancel = cancel;
+        return this;
+    }
+    
+    /**
+     * Allow the action to be paused for more urgent ones whenever canSuspend says so
+     */
+    public SimpleActionHandler<A> suspendable(Check<A> canSuspend, Hook<A> suspend, Hook<A> resume) {
+        this.canSuspend = canSuspend;
+        this.onSuspend = suspend;
+        this.onResume = resume;
+        return this;
+    }
+    
+    /**
+     * Let queued actions be prepared ahead of their start; either may be null
+     */
+    public SimpleActionHandler<A> preparable(Predict<A> predictEnd, Prepare<A> prepare) {
+        this.predictEnd = predictEnd;
+        this.onPrepare = prepare;
+        return this;
+    }
+    
+    @Override
+    public A parse(String id, JsonObject json) {
+        return parser.parse(id, json);
+    }
+    
+    @Override
+    public boolean tick(MinecraftClient client, A action, ActionContext context) {
+        return step.tick(client, action, context);
+    }
+    
+    @Override
+    public Set<Resource> resources(A action) {
+        return resources;
+    }
+    
+    @Override
+    public boolean canSuspend(A action, ActionContext context) {
+        return canSuspend != null && canSuspend.test(action, context);
+    }
+    
+    @Override
+    public void suspend(A action, ActionContext context) {
+        if (onSuspend != null) onSuspend.run(action, context);
+    }
+    
+    @Override
+    public void resume(A action, ActionContext context) {
+        if (onResume != null) onResume.run(action, context);
+    }
+    
+    @Override
+    public void cancel(A action, ActionContext context) {
+        if (onCancel != null) onCancel.run(action, context);
+    }
+    
+    @Override
+    public BlockPos predictEnd(A action, BlockPos start) {
+        return predictEnd != null ? predictEnd.end(action, start) : start;
+    }
+    
+    @Override
+    public boolean prepare(A action, BlockPos start) {
+        return onPrepare == null || onPrepare.prepare(action, start);
+    }
+}
@@ -1,21 +1,75 @@
 package com.helixyt2.mcaiagent.automation;
 
+import com.helixyt2.mcaiagent.MCAIAgentMod;
+import com.helixyt2.mcaiagent.pathing.Navigator;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.util.math.BlockPos;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
 /**
  * Integration with Baritone for pathfinding and automation.
- * Note: Baritone API integration would require actual Baritone dependency.
- * This is a placeholder/wrapper for when Baritone is properly integrated.
+ * Baritone is optional at runtime: its API is bound reflectively the first time
+ * it is needed, every call goes through a MethodHandle resolved once, and path
+ * events from Baritone's event bus report goto completion instead of polling.
+ * A mine command is done once Baritone's mine process lets go.
+ * Without Baritone, goto falls back to the mod's own pathfinder.
+ *
+ * Baritone queues path events and delivers them on its next tick, so events
+ * from a command that was just stopped or replaced can still arrive. Every
+ * command and stop starts a new generation; path events are only taken for
+ * the current one once Baritone has ticked with it.
  */
 public class BaritoneIntegration {
     private static final String BARITONE_API_CLASS = "baritone.api.BaritoneAPI";
+    private static final String GOAL_CLASS = "baritone.api.pathing.goals.Goal";
+    private static final String GOAL_BLOCK_CLASS = "baritone.api.pathing.goals.GoalBlock";
+    private static final String LISTENER_CLASS = "baritone.api.event.listener.IGameEventListener";
+    
+    /**
+     * How a Baritone command ended
+     */
+    public enum PathOutcome {
+        ARRIVED,  // Reached the goal / mined the requested amount
+        FAILED,   // No path could be found
+        CANCELED  // Stopped before finishing
+    }
+    
+    public interface PathListener {
+        void onPathOutcome(PathOutcome outcome);
+    }
+    
+    private enum Command {
+        NONE,
+        GOTO,
+        MINE
+    }
     
     private MinecraftClient client;
     private boolean isBaritoneAvailable = false;
+    private Binding binding; // Resolved on first use
+    private boolean bindingFailed = false;
+    
+    // Only touched on the client thread, where Baritone fires its events
+    private Command activeCommand = Command.NONE;
+    private int generation = 0; // Bumped by every command and stop
+    private int eventGeneration = 0; // Generation the path events being delivered belong to
+    private PathListener listener;
+    private final Navigator navigator;
+    private final Deque<BlockPos> route = new ArrayDeque<>(); // Waypoints after the current Baritone goal
+    private int routeLength; // Waypoints in the current goto/follow_path
     
     public BaritoneIntegration(MinecraftClient client) {
         this.client = client;
+        this.navigator = new Navigator(MCAIAgentMod.getInstance().getPathfinder());
         checkBaritoneAvailability();
     }
     
@@ -30,116 +84,343 @@ public class BaritoneIntegration {
     }
     
     public boolean isAvailable() {
-        return isBaritoneAvailable;
+        return isBaritoneAvailable && !bindingFailed;
+    }
+    
+    /**
+     * Receives the outcome of goto/mine commands, pushed from Baritone's path events
+     */
+    public void setListener(PathListener listener) {
+        this.listener = listener;
+    }
+    
+    /**
+     * Method handles into the primary Baritone instance, each bound to its receiver
+     */
+    private static final class Binding {
+        final MethodHandle setGoalAndPath; // (Goal) -> void
+        final MethodHandle newGoalBlock;   // (int, int, int) -> Goal
+        final MethodHandle mineByName;     // (int, String[]) -> void
+        final MethodHandle mineActive;     // () -> boolean
+        final MethodHandle cancelEverything;
+        
+        Binding(MethodHandle setGoalAndPath, MethodHandle newGoalBlock, MethodHandle mineByName, MethodHandle mineActive,
+                MethodHandle cancelEverything) {
+            this.setGoalAndPath = setGoalAndPath;
+            this.newGoalBlock = newGoalBlock;
+            this.mineByName = mineByName;
+            this.mineActive = mineActive;
+            this.cancelEverything = cancelEverything;
+        }
+    }
+    
+    private Binding binding() {
+        if (binding == null && isBaritoneAvailable && !bindingFailed) {
+            try {
+                binding = bind();
+            } catch (Throwable e) {
+                bindingFailed = true;
+                MCAIAgentMod.LOGGER.error("Baritone found but its API could not be bound", e);
+            }
+        }
+        return binding;
+    }
+    
+    private Binding bind() throws Throwable {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        ClassLoader loader = BaritoneIntegration.class.getClassLoader();
+        Class<?> api = Class.forName(BARITONE_API_CLASS, true, loader);
+        Class<?> goal = Class.forName(GOAL_CLASS, true, loader);
+        
+        // BaritoneAPI.getProvider().getPrimaryBaritone()
+        Class<?> providerType = Class.forName("baritone.api.IBaritoneProvider", true, loader);
+        Class<?> baritoneType = Class.forName("baritone.api.IBaritone", true, loader);
+        Object provider = api.getMethod("getProvider").invoke(null);
+        Object baritone = providerType.getMethod("getPrimaryBaritone").invoke(provider);
+        
+        Object goalProcess = baritoneType.getMethod("getCustomGoalProcess").invoke(baritone);
+        Object mineProcess = baritoneType.getMethod("getMineProcess").invoke(baritone);
+        Object pathing = baritoneType.getMethod("getPathingBehavior").invoke(baritone);
+        Object eventBus = baritoneType.getMethod("getGameEventHandler").invoke(baritone);
+        
+        MethodHandle setGoalAndPath = lookup.findVirtual(
+                Class.forName("baritone.api.process.ICustomGoalProcess", true, loader),
+                "setGoalAndPath", MethodType.methodType(void.class, goal))
+            .bindTo(goalProcess)
+            .asType(MethodType.methodType(void.class, Object.class));
+        MethodHandle newGoalBlock = lookup.findConstructor(
+                Class.forName(GOAL_BLOCK_CLASS, true, loader),
+                MethodType.methodType(void.class, int.class, int.class, int.class))
+            .asType(MethodType.methodType(Object.class, int.class, int.class, int.class));
+        MethodHandle mineByName = lookup.findVirtual(
+                Class.forName("baritone.api.process.IMineProcess", true, loader),
+                "mineByName", MethodType.methodType(void.class, int.class, String[].class))
+            .bindTo(mineProcess);
+        MethodHandle mineActive = lookup.findVirtual(
+                Class.forName("baritone.api.process.IBaritoneProcess", true, loader),
+                "isActive", MethodType.methodType(boolean.class))
+            .bindTo(mineProcess);
+        MethodHandle cancelEverything = lookup.findVirtual(
+                Class.forName("baritone.api.behavior.IPathingBehavior", true, loader),
+                "cancelEverything", MethodType.methodType(boolean.class))
+            .bindTo(pathing)
+            .asType(MethodType.methodType(void.class));
+            
+        subscribe(eventBus, loader);
+        MCAIAgentMod.LOGGER.info("Bound Baritone API");
+        return new Binding(setGoalAndPath, newGoalBlock, mineByName, mineActive, cancelEverything);
+    }
+    
+    /**
+     * Register a proxy IGameEventListener that only reacts to onPathEvent and
+     * onTick; every other callback is a no-op default. It is registered after
+     * Baritone's own behaviors, so its onTick comes after the path events
+     * Baritone delivered that tick.
+     */
+    private void subscribe(Object eventBus, ClassLoader loader) throws Throwable {
+        Class<?> listenerType = Class.forName(LISTENER_CLASS, true, loader);
+        Object proxy = Proxy.newProxyInstance(loader, new Class<?>[] {listenerType}, (self, method, args) -> {
+            switch (method.getName()) {
+                case "onPathEvent":
+                    onPathEvent(((Enum<?>) args[0]).name());
+                    return null;
+                case "onTick":
+                    eventGeneration = generation;
+                    return null;
+                case "equals":
+                    return self == args[0];
+                case "hashCode":
+                    return System.identityHashCode(self);
+                case "toString":
+                    return "MCAIAgent path listener";
+                default:
+                    return null; // Listener callbacks are all void
+            }
+        });
+        
+        Class<?> busType = Class.forName("baritone.api.event.listener.IEventBus", true, loader);
+        Method register = busType.getMethod("registerEventListener", listenerType);
+        register.invoke(eventBus, proxy);
+    }
+    
+    private void onPathEvent(String event) {
+        if (activeCommand == Command.NONE || eventGeneration != generation) {
+            return; // Queued before the current command was given
+        }
+        
+        switch (event) {
+            case "AT_GOAL":
+                // Mining reaches many goals on the way; see pollMine()
+                if (activeCommand == Command.GOTO) {
+                    if (route.isEmpty()) {
+                        finish(PathOutcome.ARRIVED);
+                    } else {
+                        setGoal(route.poll());
+                    }
+                }
+                break;
+                
+            case "CALC_FAILED":
+                finish(PathOutcome.FAILED);
+                break;
+                
+            case "CANCELED":
+                // Mining cancels its path whenever it picks a new target; a
+                // goto only sees this when something else stopped Baritone
+                if (activeCommand == Command.GOTO) {
+                    finish(PathOutcome.CANCELED);
+                }
+                break;
+                
+            default:
+                break;
+        }
+    }
+    
+    private void finish(PathOutcome outcome) {
+        activeCommand = Command.NONE;
+        route.clear();
+        MCAIAgentMod.LOGGER.info("Baritone command ended: " + outcome);
+        if (listener != null) {
+            listener.onPathOutcome(outcome);
+        }
+    }
+    
+    private void begin(Command command) {
+        activeCommand = command;
+        generation++;
+    }
+    
+    /**
+     * Advance the fallback navigator and check on a Baritone mine command;
+     * called every client tick
+     */
+    public void tick() {
+        if (activeCommand == Command.MINE && binding != null) {
+            pollMine();
+        }
+        if (!navigator.isActive()) return;
+        
+        Navigator.Status status = navigator.tick(client);
+        if (status == Navigator.Status.ARRIVED) {
+            finish(PathOutcome.ARRIVED);
+        } else if (status == Navigator.Status.FAILED) {
+            finish(PathOutcome.FAILED);
+        }
+    }
+    
+    /**
+     * The mine process stays active until it has the requested amount or runs
+     * out of known blocks, whatever paths it cancels on the way
+     */
+    private void pollMine() {
+        try {
+            if (!(boolean) binding.mineActive.invokeExact()) {
+                finish(PathOutcome.ARRIVED);
+            }
+        } catch (Throwable e) {
+            MCAIAgentMod.LOGGER.error("Baritone mine state check failed", e);
+            finish(PathOutcome.FAILED);
+        }
     }
     
     /**
      * Navigate to a specific position using Baritone
      */
     public void goToPosition(BlockPos pos) {
-        if (!isBaritoneAvailable) {
+        Binding api = binding();
+        if (api == null) {
             fallbackMovement(pos);
             return;
         }
         
-        try {
-            // When Baritone is integrated:
-            // BaritoneAPI.getProvider().getPrimaryBaritone().getCustomGoalProcess().setGoalAndPath(new GoalBlock(pos));
-        } catch (Exception e) {
+        route.clear();
+        routeLength = 1;
+        begin(Command.GOTO);
+        if (!setGoal(pos)) {
+            activeCommand = Command.NONE;
             fallbackMovement(pos);
         }
     }
     
+    private boolean setGoal(BlockPos pos) {
+        try {
+            Object goal = (Object) binding.newGoalBlock.invokeExact(pos.getX(), pos.getY(), pos.getZ());
+            binding.setGoalAndPath.invokeExact(goal);
+            return true;
+        } catch (Throwable e) {
+            MCAIAgentMod.LOGGER.error("Baritone goto failed", e);
+            return false;
+        }
+    }
+    
     /**
-     * Mine a specific block type
+     * Mine a specific block type. Returns false if Baritone could not take the
+     * command, so the caller can mine some other way.
      */
-    public void mineBlock(String blockType, int quantity) {
-        if (!isBaritoneAvailable) {
-            return;
+    public boolean mineBlock(String blockType, int quantity) {
+        Binding api = binding();
+        if (api == null) {
+            return false;
         }
         
         try {
-            // When Baritone is integrated:
-            // BaritoneAPI.getProvider().getPrimaryBaritone().getMineProcess().mine(quantity, blockType);
-        } catch (Exception e) {
-            // Fallback or log error
+            begin(Command.MINE);
+            api.mineByName.invokeExact(quantity, new String[] {blockType});
+            return true;
+        } catch (Throwable e) {
+            MCAIAgentMod.LOGGER.error("Baritone mine failed", e);
+            activeCommand = Command.NONE;
+            return false;
         }
     }
     
     /**
-     * Follow a path
+     * Visit the waypoints in order. Baritone is given the next waypoint as soon
+     * as it reaches one; the native pathfinder searches each segment while the
+     * previous one is walked.
      */
     public void followPath(BlockPos... waypoints) {
-        if (!isBaritoneAvailable) {
+        if (waypoints.length == 0) return;
+        
+        Binding api = binding();
+        if (api == null) {
+            if (client.player == null) return;
+            begin(Command.GOTO);
+            navigator.followRoute(client, List.of(waypoints));
             return;
         }
         
-        // Baritone pathfinding logic
+        goToPosition(waypoints[0]);
+        if (activeCommand == Command.GOTO && !navigator.isActive()) {
+            route.addAll(Arrays.asList(waypoints).subList(1, waypoints.length));
+            routeLength = waypoints.length;
+        } else if (navigator.isActive()) {
+            // Baritone refused the first goal; walk the whole route natively
+            navigator.followRoute(client, List.of(waypoints));
+        }
     }
     
     /**
-     * Stop all Baritone processes
+     * Index of the waypoint the current goto/follow_path is heading for
+     */
+    public int getWaypointIndex() {
+        if (navigator.isActive()) {
+            return navigator.getWaypointIndex();
+        }
+        return Math.max(0, routeLength - route.size() - 1);
+    }
+    
+    /**
+     * Stop all Baritone processes. The command ends as CANCELED right away;
+     * the path events Baritone still delivers for it are dropped.
      */
     public void stop() {
-        if (!isBaritoneAvailable) {
+        if (navigator.isActive()) {
+            navigator.stop(client);
+            finish(PathOutcome.CANCELED);
+            return;
+        }
+        
+        Binding api = binding();
+        if (api == null || activeCommand == Command.NONE) {
             return;
         }
         
         try {
-            // BaritoneAPI.getProvider().getPrimaryBaritone().getPathingBehavior().cancelEverything();
-        } catch (Exception e) {
-            // Handle error
+            api.cancelEverything.invokeExact();
+        } catch (Throwable e) {
+            MCAIAgentMod.LOGGER.error("Baritone cancel failed", e);
         }
+        generation++;
+        finish(PathOutcome.CANCELED);
     }
     
     /**
-     * Check if Baritone is currently active
+     * Check if a Baritone command is still running. Tracked from path events,
+     * so this does not call into Baritone.
      */
     public boolean isActive() {
-        if (!isBaritoneAvailable) {
-            return false;
-        }
-        
-        try {
-            // return BaritoneAPI.getProvider().getPrimaryBaritone().getPathingBehavior().isInProgress();
-            return false;
-        } catch (Exception e) {
-            return false;
-        }
+        return activeCommand != Command.NONE;
     }
     
     /**
-     * Fallback movement when Baritone is not available
+     * Fallback movement when Baritone is not available: the mod's own A*
+     * search on a worker thread, followed on the client tick
      */
     private void fallbackMovement(BlockPos target) {
-        // Simple movement towards target
-        // This is very basic and doesn't handle obstacles
         if (client.player == null) return;
         
-        BlockPos playerPos = client.player.getBlockPos();
-        double dx = target.getX() - playerPos.getX();
-        double dz = target.getZ() - playerPos.getZ();
-        
-        // Calculate direction
-        double distance = Math.sqrt(dx * dx + dz * dz);
-        if (distance < 1.0) {
-            return; // Already at target
-        }
-        
-        // Move towards target (simplified)
-        float yaw = (float) Math.toDegrees(Math.atan2(dz, dx)) - 90;
-        client.player.setYaw(yaw);
-        
-        // Set forward movement
-        // This would need proper input handling
+        begin(Command.GOTO);
+        navigator.goTo(client, target);
     }
     
     /**
      * Get current status
      */
     public String getStatus() {
-        if (!isBaritoneAvailable) {
-            return "Baritone not available";
+        if (!isAvailable()) {
+            return navigator.isActive() ? "Native pathing: " + navigator.getStatus() : "Baritone not available";
         }
         
         if (isActive()) {
@@ -1,28 +1,48 @@
 package com.helixyt2.mcaiagent.automation;
 
 import com.google.gson.JsonObject;
+import com.helixyt2.mcaiagent.MCAIAgentMod;
+import net.minecraft.block.Blocks;
 import net.minecraft.client.MinecraftClient;
-import net.minecraft.client.gui.screen.ingame.CraftingScreen;
-import net.minecraft.client.gui.screen.ingame.InventoryScreen;
 import net.minecraft.client.network.ClientPlayerEntity;
 import net.minecraft.item.Item;
-import net.minecraft.item.ItemStack;
-import net.minecraft.recipe.Recipe;
-import net.minecraft.recipe.RecipeEntry;
-import net.minecraft.recipe.RecipeType;
 import net.minecraft.registry.Registries;
+import net.minecraft.screen.AbstractCraftingScreenHandler;
+import net.minecraft.screen.CraftingScreenHandler;
+import net.minecraft.screen.ScreenHandler;
 import net.minecraft.screen.slot.SlotActionType;
-import net.minecraft.util.Identifier;
+import net.minecraft.util.Hand;
+import net.minecraft.util.hit.BlockHitResult;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.util.math.Vec3d;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
 import java.util.Optional;
 
 public class CraftingAutomation {
+    private static final int TABLE_REACH = 4; // Blocks
+    private static final int MAX_SETS_PER_FILL = 64; // One full stack per grid slot
+    private static final int RESPONSE_TIMEOUT = 40; // Ticks to wait for the server to react
+    
     private MinecraftClient client;
     private int tickCounter = 0;
     private CraftingState state = CraftingState.IDLE;
     private String targetRecipe;
     private int targetQuantity;
     private int craftedCount = 0;
+    private String error;
+    
+    // Plan being worked through; targetRecipe/targetQuantity describe the current step
+    private final CraftingPlanner planner;
+    private final Deque<CraftingPlanner.CraftStep> pendingSteps = new ArrayDeque<>();
+    private RecipeIndex.CraftingEntry currentRecipe;
+    
+    // Bulk craft bookkeeping: output count before the grid was filled
+    private int outputBefore;
+    private boolean resultTaken;
     
     private enum CraftingState {
         IDLE,
@@ -35,12 +55,53 @@ public class CraftingAutomation {
     
     public CraftingAutomation(MinecraftClient client) {
         this.client = client;
+        this.planner = new CraftingPlanner(MCAIAgentMod.getInstance().getRecipeIndex());
+    }
+    
+    /**
+     * Plan the craft steps (including intermediates) needed to get quantity of the
+     * named item from the current inventory. Returns null if the item is unknown.
+     */
+    public CraftingPlanner.Plan planCrafting(String itemName, int quantity) {
+        ClientPlayerEntity player = client.player;
+        Item item = MCAIAgentMod.getInstance().getRecipeIndex().resolveItem(itemName);
+        if (player == null || client.world == null || item == null) {
+            return null;
+        }
+        return planner.plan(item, quantity, MCAIAgentMod.getInstance().getInventoryIndex().getTotals());
+    }
+    
+    /**
+     * Craft every step of a feasible plan in order
+     */
+    public void startPlan(CraftingPlanner.Plan plan) {
+        pendingSteps.clear();
+        pendingSteps.addAll(plan.getSteps());
+        this.error = null;
+        nextStep();
+        this.state = targetQuantity > 0 ? CraftingState.OPENING_INVENTORY : CraftingState.COMPLETE;
+        this.tickCounter = 0;
+    }
+    
+    private void nextStep() {
+        CraftingPlanner.CraftStep step = pendingSteps.poll();
+        if (step == null) {
+            targetQuantity = 0;
+            return;
+        }
+        this.currentRecipe = step.recipe();
+        this.targetRecipe = Registries.ITEM.getId(step.output()).toString();
+        this.targetQuantity = step.crafts();
+        this.craftedCount = 0;
     }
     
     public void startCrafting(String recipe, int quantity) {
+        this.pendingSteps.clear();
+        this.currentRecipe = null;
         this.targetRecipe = recipe;
         this.targetQuantity = quantity;
         this.craftedCount = 0;
+        this.error = null;
         this.state = CraftingState.OPENING_INVENTORY;
         this.tickCounter = 0;
     }
@@ -55,29 +116,50 @@ public class CraftingAutomation {
                 return false;
                 
             case OPENING_INVENTORY:
-                // Open inventory/crafting table
-                if (tickCounter > 5) {
+                // Pick the interface the current recipe needs
+                if (currentRecipe == null) {
+                    Optional<RecipeIndex.CraftingEntry> recipe = findRecipe(targetRecipe);
+                    if (recipe.isEmpty()) {
+                        fail("No crafting recipe for " + targetRecipe);
+                        break;
+                    }
+                    currentRecipe = recipe.get();
+                }
+                
+                if (currentRecipe.fitsInventoryGrid() || player.currentScreenHandler instanceof CraftingScreenHandler) {
                     openCraftingInterface();
                     state = CraftingState.CRAFTING;
+                } else if (openCraftingTable(player)) {
+                    state = CraftingState.OPENING_CRAFTING_TABLE;
+                } else {
+                    fail("No crafting table within reach for " + targetRecipe);
+                }
+                tickCounter = 0;
+                break;
+                
+            case OPENING_CRAFTING_TABLE:
+                // Wait for the server to open the table
+                if (player.currentScreenHandler instanceof CraftingScreenHandler) {
+                    state = CraftingState.CRAFTING;
                     tickCounter = 0;
+                } else if (tickCounter > RESPONSE_TIMEOUT) {
+                    fail("Crafting table did not open");
                 }
                 break;
                 
             case CRAFTING:
-                // Perform the craft
-                if (tickCounter > 10) {
-                    boolean success = performCraft();
-                    if (success) {
-                        craftedCount++;
-                        if (craftedCount >= targetQuantity) {
-                            state = CraftingState.COMPLETE;
-                        } else {
-                            tickCounter = 0;
-                        }
-                    } else {
-                        state = CraftingState.COMPLETE;
-                    }
+                // Fill the grid with as many sets as are still needed
+                if (!hasMaterials(currentRecipe)) {
+                    fail("Out of materials for " + targetRecipe + " after " + craftedCount + " crafts");
+                    break;
                 }
+                fillGrid(player);
+                state = CraftingState.COLLECTING_RESULT;
+                tickCounter = 0;
+                break;
+                
+            case COLLECTING_RESULT:
+                collectResult(player);
                 break;
                 
             case COMPLETE:
@@ -90,8 +172,7 @@ public class CraftingAutomation {
     }
     
     private void openCraftingInterface() {
-        // Try to open inventory for 2x2 crafting
-        // For 3x3, would need to interact with crafting table
+        // The 2x2 grid works through the player's own screen handler
         ClientPlayerEntity player = client.player;
         if (player != null && client.currentScreen == null) {
             // Open inventory
@@ -99,74 +180,138 @@ public class CraftingAutomation {
         }
     }
     
+    private boolean openCraftingTable(ClientPlayerEntity player) {
+        if (client.interactionManager == null) return false;
+        
+        BlockPos table = MCAIAgentMod.getInstance().getBlockIndex()
+            .findNearest(Blocks.CRAFTING_TABLE, player.getBlockPos(), TABLE_REACH);
+        if (table == null) return false;
+        
+        closeCraftingInterface();
+        BlockHitResult hitResult = new BlockHitResult(Vec3d.ofCenter(table), Direction.UP, table, false);
+        client.interactionManager.interactBlock(player, Hand.MAIN_HAND, hitResult);
+        return true;
+    }
+    
     private void closeCraftingInterface() {
         if (client.currentScreen != null) {
             client.currentScreen.close();
         }
     }
     
-    private boolean performCraft() {
-        // This is a simplified version
-        // Real implementation would:
-        // 1. Find the recipe
-        // 2. Check if materials are available
-        // 3. Place materials in crafting grid
-        // 4. Take result
-        
-        ClientPlayerEntity player = client.player;
-        if (player == null) return false;
+    /**
+     * Let the recipe book fill the grid: "craft all" for a full stack per slot,
+     * otherwise one click per set still needed. Clicks name the recipe by its
+     * recipe book id.
+     */
+    private void fillGrid(ClientPlayerEntity player) {
+        ScreenHandler handler = player.currentScreenHandler;
+        outputBefore = countItem(currentRecipe.output());
+        resultTaken = false;
         
-        // Look up recipe
-        Optional<RecipeEntry<?>> recipeOpt = findRecipe(targetRecipe);
-        if (recipeOpt.isEmpty()) {
-            return false;
+        int remaining = targetQuantity - craftedCount;
+        if (remaining >= MAX_SETS_PER_FILL) {
+            client.interactionManager.clickRecipe(handler.syncId, currentRecipe.id(), true);
+        } else {
+            for (int i = 0; i < remaining; i++) {
+                client.interactionManager.clickRecipe(handler.syncId, currentRecipe.id(), false);
+            }
+        }
+    }
+    
+    /**
+     * Shift-click the result once the server filled the grid, then count the
+     * crafts from the change in the output item's inventory count.
+     */
+    private void collectResult(ClientPlayerEntity player) {
+        ScreenHandler handler = player.currentScreenHandler;
+        if (!(handler instanceof AbstractCraftingScreenHandler craftingHandler)) {
+            fail("Crafting screen closed");
+            return;
         }
         
-        // Check materials
-        if (!hasMaterials(recipeOpt.get())) {
-            return false;
+        if (!resultTaken) {
+            int resultSlot = craftingHandler.getOutputSlot().id;
+            if (handler.getSlot(resultSlot).hasStack()) {
+                // Quick move crafts every filled set in one interaction
+                client.interactionManager.clickSlot(handler.syncId, resultSlot, 0, SlotActionType.QUICK_MOVE, player);
+                resultTaken = true;
+                tickCounter = 0;
+            } else if (tickCounter > RESPONSE_TIMEOUT) {
+                fail("Crafting grid was not filled for " + targetRecipe);
+            }
+            return;
         }
         
-        // Simulate crafting (actual implementation would interact with slots)
-        // This would use screen handlers and slot clicking
+        int gained = countItem(currentRecipe.output()) - outputBefore;
+        if (gained <= 0) {
+            if (tickCounter > RESPONSE_TIMEOUT) {
+                fail("Crafted items never arrived for " + targetRecipe);
+            }
+            return;
+        }
         
-        return true;
+        craftedCount += (gained + currentRecipe.count() - 1) / currentRecipe.count();
+        tickCounter = 0;
+        if (craftedCount < targetQuantity) {
+            state = CraftingState.CRAFTING;
+        } else if (pendingSteps.isEmpty()) {
+            state = CraftingState.COMPLETE;
+        } else {
+            nextStep();
+            state = CraftingState.OPENING_INVENTORY;
+        }
     }
     
-    private Optional<RecipeEntry<?>> findRecipe(String recipeName) {
-        Identifier recipeId = Identifier.tryParse(recipeName);
-        if (recipeId == null) {
-            // Try to find by item name
-            recipeId = new Identifier("minecraft", recipeName);
+    private static int countItem(Item item) {
+        return MCAIAgentMod.getInstance().getInventoryIndex().count(item);
+    }
+    
+    private void fail(String reason) {
+        MCAIAgentMod.LOGGER.warn("Crafting failed: " + reason);
+        this.error = reason;
+        this.pendingSteps.clear();
+        this.state = CraftingState.COMPLETE;
+    }
+    
+    private Optional<RecipeIndex.CraftingEntry> findRecipe(String recipeName) {
+        // Exact output-item lookup, so "stick" cannot match "sticky_piston"
+        List<RecipeIndex.CraftingEntry> recipes = MCAIAgentMod.getInstance().getRecipeIndex().find(recipeName);
+        if (recipes.isEmpty()) {
+            return Optional.empty();
         }
+        return Optional.of(recipes.get(0));
+    }
+    
+    private boolean hasMaterials(RecipeIndex.CraftingEntry recipe) {
+        return planner.hasIngredients(recipe, MCAIAgentMod.getInstance().getInventoryIndex().getTotals());
+    }
+    
+    public void stop() {
+        if (state == CraftingState.IDLE) return;
         
-        if (client.world == null) return Optional.empty();
-        
-        return client.world.getRecipeManager()
-            .listAllOfType(RecipeType.CRAFTING)
-            .stream()
-            .filter(entry -> {
-                ItemStack result = entry.value().getResult(client.world.getRegistryManager());
-                return result.getItem().toString().contains(recipeName);
-            })
-            .findFirst();
-    }
-    
-    private boolean hasMaterials(RecipeEntry<?> recipe) {
-        // Check if player has required materials
-        // Simplified version - would need to check recipe ingredients
-        return true;
+        closeCraftingInterface();
+        pendingSteps.clear();
+        state = CraftingState.IDLE;
     }
     
     public boolean isActive() {
         return state != CraftingState.IDLE;
     }
     
+    /**
+     * Why the last run stopped early, or null if it finished
+     */
+    public String getError() {
+        return error;
+    }
+    
     public JsonObject getProgress() {
         JsonObject progress = new JsonObject();
         progress.addProperty("state", state.name());
         progress.addProperty("craftedCount", craftedCount);
         progress.addProperty("targetQuantity", targetQuantity);
+        progress.addProperty("stepsRemaining", pendingSteps.size());
         return progress;
     }
 }
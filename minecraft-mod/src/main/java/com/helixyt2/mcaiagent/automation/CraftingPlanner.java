@@ -0,0 +1,296 @@
+package com.helixyt2.mcaiagent.automation;
+
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import net.minecraft.item.Item;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Expands a crafting target into an ordered list of craft steps against the
+ * current inventory, e.g. 1 wooden_pickaxe → planks, sticks, pickaxe.
+ *
+ * Alternatives (several recipes for an item, several items for an ingredient)
+ * are compared and the plan with the fewest steps wins. Sub-trees are memoized
+ * by (item, quantity, inventory) and the memo is dropped when the recipe
+ * index is rebuilt. Sub-trees cut short by the depth limit or a recipe cycle
+ * depend on the path that led to them and are not memoized.
+ * Each ingredient group is satisfied from a single item type.
+ */
+public class CraftingPlanner {
+    private static final int MAX_DEPTH = 8;
+    private static final int MAX_ALTERNATIVES = 4; // Recipes per item / candidate items per ingredient
+    private static final int MAX_MEMO_ENTRIES = 4096;
+    
+    public record CraftStep(RecipeIndex.CraftingEntry recipe, Item output, int crafts, boolean needsTable) {
+    }
+    
+    public static class Plan {
+        private final List<CraftStep> steps;
+        private final Map<Item, Integer> missing;
+        
+        Plan(List<CraftStep> steps, Map<Item, Integer> missing) {
+            this.steps = steps;
+            this.missing = missing;
+        }
+        
+        public boolean isFeasible() {
+            return missing.isEmpty();
+        }
+        
+        public List<CraftStep> getSteps() {
+            return steps;
+        }
+        
+        /**
+         * Raw materials that are short, by item (only set for infeasible plans)
+         */
+        public Map<Item, Integer> getMissing() {
+            return missing;
+        }
+        
+        public boolean needsTable() {
+            for (CraftStep step : steps) {
+                if (step.needsTable()) return true;
+            }
+            return false;
+        }
+    }
+    
+    // Result of expanding one sub-tree: steps in order and the inventory left afterwards
+    private record Expansion(List<CraftStep> steps, Reference2IntOpenHashMap<Item> inventory, int crafts) {
+        boolean isBetterThan(Expansion other) {
+            if (other == null) return true;
+            if (steps.size() != other.steps.size()) return steps.size() < other.steps.size();
+            return crafts < other.crafts;
+        }
+    }
+    
+    private record MemoKey(Item item, int needed, Map<Item, Integer> inventory) {
+    }
+    
+    private final RecipeIndex recipes;
+    private final Map<MemoKey, Optional<Expansion>> memo = new HashMap<>();
+    private int memoGeneration = -1;
+    private boolean cutOff; // Whether the sub-tree being expanded hit the depth limit or a cycle
+    
+    public CraftingPlanner(RecipeIndex recipes) {
+        this.recipes = recipes;
+    }
+    
+    /**
+     * Plan how to end up with quantity more of the target item.
+     */
+    public Plan plan(Item target, int quantity, Reference2IntMap<Item> inventory) {
+        if (memoGeneration != recipes.getGeneration() || memo.size() > MAX_MEMO_ENTRIES) {
+            memo.clear();
+            memoGeneration = recipes.getGeneration();
+        }
+        
+        // The target is crafted even if some are already in the inventory
+        Reference2IntOpenHashMap<Item> available = new Reference2IntOpenHashMap<>(inventory);
+        available.removeInt(target);
+        
+        cutOff = false;
+        Expansion expansion = expand(target, quantity, available, 0, new HashSet<>());
+        if (expansion != null) {
+            return new Plan(mergeAdjacent(expansion.steps()), Collections.emptyMap());
+        }
+        
+        Map<Item, Integer> missing = new LinkedHashMap<>();
+        collectMissing(target, quantity, available, 0, new HashSet<>(), missing);
+        if (missing.isEmpty()) {
+            missing.put(target, quantity); // Nothing simpler to blame, e.g. a recipe cycle
+        }
+        return new Plan(Collections.emptyList(), missing);
+    }
+    
+    /**
+     * Whether a single craft of the recipe can be done from the inventory as it is
+     */
+    public boolean hasIngredients(RecipeIndex.CraftingEntry recipe, Reference2IntMap<Item> inventory) {
+        Reference2IntOpenHashMap<Item> remaining = new Reference2IntOpenHashMap<>(inventory);
+        for (Map.Entry<List<Item>, Integer> group : groupIngredients(recipe).entrySet()) {
+            Item source = null;
+            for (Item candidate : group.getKey()) {
+                if (remaining.getInt(candidate) >= group.getValue()) {
+                    source = candidate;
+                    break;
+                }
+            }
+            if (source == null) return false;
+            remaining.addTo(source, -group.getValue());
+        }
+        return true;
+    }
+    
+    private Expansion expand(Item item, int needed, Reference2IntOpenHashMap<Item> inventory, int depth,
+                             Set<Item> visiting) {
+        int have = inventory.getInt(item);
+        if (have >= needed) {
+            Reference2IntOpenHashMap<Item> after = new Reference2IntOpenHashMap<>(inventory);
+            after.addTo(item, -needed);
+            return new Expansion(Collections.emptyList(), after, 0);
+        }
+        if (depth >= MAX_DEPTH || visiting.contains(item)) {
+            cutOff = true;
+            return null;
+        }
+        
+        MemoKey key = new MemoKey(item, needed, stock(inventory));
+        Optional<Expansion> cached = memo.get(key);
+        if (cached != null) {
+            return cached.orElse(null);
+        }
+        
+        boolean outerCutOff = cutOff;
+        cutOff = false;
+        
+        int remaining = needed - have;
+        Reference2IntOpenHashMap<Item> base = new Reference2IntOpenHashMap<>(inventory);
+        base.removeInt(item);
+        
+        visiting.add(item);
+        Expansion best = null;
+        List<RecipeIndex.CraftingEntry> candidates = recipes.getRecipes(item);
+        for (int r = 0; r < candidates.size() && r < MAX_ALTERNATIVES; r++) {
+            RecipeIndex.CraftingEntry recipe = candidates.get(r);
+            int perCraft = recipe.count();
+            int crafts = (remaining + perCraft - 1) / perCraft;
+            
+            Expansion inputs = expandIngredients(recipe, crafts, base, depth, visiting);
+            if (inputs == null) continue;
+            
+            List<CraftStep> steps = new ArrayList<>(inputs.steps());
+            steps.add(new CraftStep(recipe, item, crafts, !recipe.fitsInventoryGrid()));
+            Reference2IntOpenHashMap<Item> after = inputs.inventory();
+            after.addTo(item, crafts * perCraft - remaining); // Leftover output
+            
+            Expansion candidate = new Expansion(steps, after, inputs.crafts() + crafts);
+            if (candidate.isBetterThan(best)) {
+                best = candidate;
+            }
+        }
+        visiting.remove(item);
+        
+        if (!cutOff) {
+            memo.put(key, Optional.ofNullable(best));
+        }
+        cutOff |= outerCutOff;
+        return best;
+    }
+    
+    // The items actually in stock, so used-up entries do not split memo keys
+    private static Map<Item, Integer> stock(Reference2IntOpenHashMap<Item> inventory) {
+        Map<Item, Integer> stock = new HashMap<>();
+        for (Reference2IntMap.Entry<Item> entry : inventory.reference2IntEntrySet()) {
+            if (entry.getIntValue() > 0) {
+                stock.put(entry.getKey(), entry.getIntValue());
+            }
+        }
+        return stock;
+    }
+    
+    private Expansion expandIngredients(RecipeIndex.CraftingEntry recipe, int crafts,
+                                        Reference2IntOpenHashMap<Item> inventory, int depth,
+                                        Set<Item> visiting) {
+        List<CraftStep> steps = new ArrayList<>();
+        Reference2IntOpenHashMap<Item> current = inventory;
+        int totalCrafts = 0;
+        
+        for (Map.Entry<List<Item>, Integer> group : groupIngredients(recipe).entrySet()) {
+            int needed = group.getValue() * crafts;
+            Expansion best = null;
+            
+            // Prefer an item already in stock; only expand sub-recipes otherwise
+            for (Item candidate : group.getKey()) {
+                if (current.getInt(candidate) >= needed) {
+                    best = expand(candidate, needed, current, depth + 1, visiting);
+                    break;
+                }
+            }
+            if (best == null) {
+                List<Item> options = group.getKey();
+                for (int i = 0; i < options.size() && i < MAX_ALTERNATIVES; i++) {
+                    Expansion option = expand(options.get(i), needed, current, depth + 1, visiting);
+                    if (option != null && option.isBetterThan(best)) {
+                        best = option;
+                    }
+                }
+            }
+            if (best == null) {
+                return null;
+            }
+            
+            steps.addAll(best.steps());
+            current = best.inventory();
+            totalCrafts += best.crafts();
+        }
+        
+        return new Expansion(steps, new Reference2IntOpenHashMap<>(current), totalCrafts);
+    }
+    
+    // Follow the first option at every level and record the raw materials that run short
+    private void collectMissing(Item item, int needed, Reference2IntOpenHashMap<Item> inventory, int depth,
+                                Set<Item> visiting, Map<Item, Integer> missing) {
+        int have = inventory.getInt(item);
+        inventory.addTo(item, -Math.min(have, needed));
+        int remaining = needed - have;
+        if (remaining <= 0) return;
+        
+        List<RecipeIndex.CraftingEntry> candidates = recipes.getRecipes(item);
+        if (candidates.isEmpty() || depth >= MAX_DEPTH || !visiting.add(item)) {
+            missing.merge(item, remaining, Integer::sum);
+            return;
+        }
+        
+        RecipeIndex.CraftingEntry recipe = candidates.get(0);
+        int perCraft = recipe.count();
+        int crafts = (remaining + perCraft - 1) / perCraft;
+        for (Map.Entry<List<Item>, Integer> group : groupIngredients(recipe).entrySet()) {
+            Item pick = group.getKey().get(0);
+            for (Item candidate : group.getKey()) {
+                if (inventory.getInt(candidate) > inventory.getInt(pick)) {
+                    pick = candidate;
+                }
+            }
+            collectMissing(pick, group.getValue() * crafts, inventory, depth + 1, visiting, missing);
+        }
+        visiting.remove(item);
+    }
+    
+    /**
+     * Identical ingredients merged with their count per craft, e.g. 3 × [planks...]
+     */
+    private static Map<List<Item>, Integer> groupIngredients(RecipeIndex.CraftingEntry recipe) {
+        Map<List<Item>, Integer> groups = new LinkedHashMap<>();
+        for (List<Item> items : recipe.ingredients()) {
+            groups.merge(items, 1, Integer::sum);
+        }
+        return groups;
+    }
+    
+    // Consecutive steps of the same recipe become one step with more crafts
+    private static List<CraftStep> mergeAdjacent(List<CraftStep> steps) {
+        List<CraftStep> merged = new ArrayList<>();
+        for (CraftStep step : steps) {
+            int last = merged.size() - 1;
+            if (last >= 0 && merged.get(last).recipe().id().equals(step.recipe().id())) {
+                CraftStep previous = merged.get(last);
+                merged.set(last, new CraftStep(previous.recipe(), previous.output(),
+                    previous.crafts() + step.crafts(), previous.needsTable()));
+            } else {
+                merged.add(step);
+            }
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,164 @@
+package com.helixyt2.mcaiagent.automation;
+
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import net.minecraft.item.FuelRegistry;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Picks the fuel for a furnace load from the inventory: the cheapest mix of
+ * fuel items whose burn time covers the needed ticks.
+ *
+ * Burn times come from the world's fuel registry. Coal-like fuels are priced
+ * far above everything else so planks, sticks and saplings are burned first;
+ * among equally cheap mixes the one wasting the least burn time wins. Solved
+ * as a bounded min-cost cover over 50 tick units (every vanilla burn time but
+ * carpet's is a multiple of 50; others are rounded down).
+ */
+public class FuelPlanner {
+    public static final int TICK_UNIT = 50;
+    private static final int RESERVED_COST = 64; // Per item, relative to 1 for ordinary fuel
+    private static final long COST_SCALE = 1000; // Keeps the waste tie-break below one cost step
+    private static final long UNREACHABLE = Long.MAX_VALUE;
+    
+    // Fuels worth more as something else (torches, blaze powder, ...)
+    private static final Set<Item> RESERVED = Set.of(
+        Items.COAL, Items.CHARCOAL, Items.COAL_BLOCK, Items.BLAZE_ROD, Items.LAVA_BUCKET, Items.DRIED_KELP_BLOCK
+    );
+    
+    public record FuelLoad(Item item, int count) {
+    }
+    
+    // count items of one fuel type, taken as a single 0/1 choice
+    private record Chunk(Item item, int count, int units, long cost) {
+    }
+    
+    /**
+     * Fuel covering burnTicks from the given inventory, longest-burning first
+     * and split into single stacks. Returns null if the inventory cannot cover it.
+     * The exclude item (e.g. the item being smelted) is never burned.
+     */
+    public List<FuelLoad> plan(int burnTicks, Reference2IntMap<Item> inventory, FuelRegistry fuels, Item exclude) {
+        List<FuelLoad> loads = new ArrayList<>();
+        if (burnTicks <= 0) {
+            return loads;
+        }
+        
+        int needed = (burnTicks + TICK_UNIT - 1) / TICK_UNIT;
+        List<Chunk> chunks = collectChunks(needed, inventory, fuels, exclude);
+        
+        // best[j][u]: cheapest cost covering at least u units with the first j chunks
+        long[][] best = new long[chunks.size() + 1][needed + 1];
+        Arrays.fill(best[0], UNREACHABLE);
+        best[0][0] = 0;
+        for (int j = 0; j < chunks.size(); j++) {
+            Chunk chunk = chunks.get(j);
+            long[] before = best[j];
+            long[] after = best[j + 1];
+            System.arraycopy(before, 0, after, 0, needed + 1);
+            for (int u = 0; u <= needed; u++) {
+                if (before[u] == UNREACHABLE) continue;
+                int target = Math.min(needed, u + chunk.units());
+                long cost = before[u] + chunk.cost();
+                if (cost < after[target]) {
+                    after[target] = cost;
+                }
+            }
+        }
+        if (best[chunks.size()][needed] == UNREACHABLE) {
+            return null;
+        }
+        
+        // Walk back through the table to see which chunks were taken
+        int[] taken = new int[chunks.size()];
+        int covered = needed;
+        for (int j = chunks.size() - 1; j >= 0 && covered > 0; j--) {
+            long cost = best[j + 1][covered];
+            if (cost == best[j][covered]) continue;
+            
+            Chunk chunk = chunks.get(j);
+            for (int u = 0; u <= covered; u++) {
+                if (best[j][u] != UNREACHABLE && Math.min(needed, u + chunk.units()) == covered
+                    && best[j][u] + chunk.cost() == cost) {
+                    taken[j] = chunk.count();
+                    covered = u;
+                    break;
+                }
+            }
+        }
+        
+        // Chunks are grouped by item in descending burn order; merge and split into stacks
+        for (int j = 0; j < chunks.size(); ) {
+            Item item = chunks.get(j).item();
+            int count = 0;
+            for (; j < chunks.size() && chunks.get(j).item() == item; j++) {
+                count += taken[j];
+            }
+            int maxCount = item.getMaxCount();
+            while (count > 0) {
+                int stack = Math.min(count, maxCount);
+                loads.add(new FuelLoad(item, stack));
+                count -= stack;
+            }
+        }
+        return loads;
+    }
+    
+    /**
+     * Binary-split every usable fuel in the inventory (1, 2, 4, ... items) so each
+     * item count is reachable as a sum of 0/1 choices
+     */
+    private static List<Chunk> collectChunks(int needed, Reference2IntMap<Item> inventory, FuelRegistry fuels, Item exclude) {
+        List<Item> candidates = new ArrayList<>();
+        for (Reference2IntMap.Entry<Item> entry : inventory.reference2IntEntrySet()) {
+            Item item = entry.getKey();
+            if (entry.getIntValue() > 0 && item != exclude && isUsableFuel(item, fuels)) {
+                candidates.add(item);
+            }
+        }
+        candidates.sort((a, b) -> Integer.compare(burnUnits(b, fuels), burnUnits(a, fuels)));
+        
+        List<Chunk> chunks = new ArrayList<>();
+        for (Item item : candidates) {
+            int units = burnUnits(item, fuels);
+            long cost = costOf(item) * COST_SCALE + units;
+            
+            // Never need more items than it takes to cover everything with this fuel alone
+            int remaining = Math.min(inventory.getInt(item), (needed + units - 1) / units);
+            for (int size = 1; remaining > 0; size <<= 1) {
+                int count = Math.min(size, remaining);
+                chunks.add(new Chunk(item, count, count * units, count * cost));
+                remaining -= count;
+            }
+        }
+        return chunks;
+    }
+    
+    /**
+     * Burn time of one item, in TICK_UNIT units (at least 1)
+     */
+    public static int burnUnits(Item item, FuelRegistry fuels) {
+        return Math.max(1, fuels.getFuelTicks(new ItemStack(item)) / TICK_UNIT);
+    }
+    
+    /**
+     * Relative worth of burning one item
+     */
+    public static int costOf(Item item) {
+        return RESERVED.contains(item) ? RESERVED_COST : 1;
+    }
+    
+    private static boolean isUsableFuel(Item item, FuelRegistry fuels) {
+        // Unstackables are wooden tools, boats and the like; lava is the exception
+        if (item.getMaxCount() == 1 && item != Items.LAVA_BUCKET) {
+            return false;
+        }
+        return fuels.isFuel(new ItemStack(item));
+    }
+}
@@ -0,0 +1,333 @@
+package com.helixyt2.mcaiagent.automation;
+
+import com.google.gson.JsonObject;
+import com.helixyt2.mcaiagent.MCAIAgentMod;
+import com.helixyt2.mcaiagent.pathing.Navigator;
+import com.helixyt2.mcaiagent.world.OreLocator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ClientPlayerEntity;
+import net.minecraft.command.argument.EntityAnchorArgumentType;
+import net.minecraft.entity.player.PlayerInventory;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.Hand;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.util.math.Vec3d;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Mines a number of blocks of one type without Baritone: the ore locator
+ * picks the nearest targets in loaded chunks and orders them into a short
+ * tour, then each target is walked to with the native pathfinder, broken
+ * with the best hotbar tool, and its drop picked up.
+ */
+public class MiningAutomation {
+    public static final int SEARCH_RADIUS = 64; // Blocks
+    private static final int TRAVEL_TIMEOUT = 600; // Ticks to reach one target
+    private static final int BREAK_TIMEOUT = 400; // Ticks to break one block
+    private static final int PICKUP_TIMEOUT = 40; // Ticks to walk onto the drop
+    
+    private MinecraftClient client;
+    private final Navigator navigator;
+    private MiningState state = MiningState.IDLE;
+    private String targetName;
+    private Set<Block> targetBlocks = Set.of();
+    private int targetQuantity;
+    private int minedCount = 0;
+    private int tickCounter = 0;
+    private String error;
+    
+    private final Deque<BlockPos> visits = new ArrayDeque<>(); // Planned tour, next target first
+    private final LongOpenHashSet skipped = new LongOpenHashSet(); // Targets that could not be reached or broken
+    private BlockPos current;
+    
+    private enum MiningState {
+        IDLE,
+        TRAVELING,
+        BREAKING,
+        COLLECTING,
+        COMPLETE
+    }
+    
+    public MiningAutomation(MinecraftClient client) {
+        this.client = client;
+        this.navigator = new Navigator(MCAIAgentMod.getInstance().getPathfinder());
+    }
+    
+    public void startMining(String blockName, int quantity) {
+        OreLocator locator = MCAIAgentMod.getInstance().getOreLocator();
+        this.targetName = blockName;
+        this.targetBlocks = locator.resolveBlocks(blockName);
+        this.targetQuantity = Math.max(1, quantity);
+        this.minedCount = 0;
+        this.error = null;
+        this.visits.clear();
+        this.skipped.clear();
+        this.current = null;
+        
+        if (targetBlocks.isEmpty()) {
+            fail("Unknown block: " + blockName);
+            return;
+        }
+        if (!OreLocator.isIndexed(targetBlocks.iterator().next())) {
+            fail(blockName + " is not tracked by the block index");
+            return;
+        }
+        nextTarget();
+    }
+    
+    public boolean tick() {
+        tickCounter++;
+        ClientPlayerEntity player = client.player;
+        if (player == null) return false;
+        
+        switch (state) {
+            case IDLE:
+                return false;
+                
+            case TRAVELING:
+                travel(player);
+                break;
+                
+            case BREAKING:
+                breakBlock(player);
+                break;
+                
+            case COLLECTING:
+                // Walk onto the broken block's spot so the drop is picked up
+                Navigator.Status status = navigator.tick(client);
+                if (status == Navigator.Status.ARRIVED || status == Navigator.Status.FAILED
+                    || tickCounter > PICKUP_TIMEOUT) {
+                    navigator.stop(client);
+                    nextTarget();
+                }
+                break;
+                
+            case COMPLETE:
+                navigator.stop(client);
+                state = MiningState.IDLE;
+                return true;
+        }
+        
+        return false;
+    }
+    
+    private void travel(ClientPlayerEntity player) {
+        if (!isTarget(current)) {
+            // Mined by someone else, or the index was stale
+            navigator.stop(client);
+            nextTarget();
+            return;
+        }
+        if (player.canInteractWithBlockAt(current, 0)) {
+            navigator.stop(client);
+            state = MiningState.BREAKING;
+            tickCounter = 0;
+            return;
+        }
+        
+        Navigator.Status status = navigator.tick(client);
+        if (status == Navigator.Status.FAILED || status == Navigator.Status.ARRIVED || tickCounter > TRAVEL_TIMEOUT) {
+            // Arriving without being in reach means the path only got close
+            skip("not reachable");
+        }
+    }
+    
+    private void breakBlock(ClientPlayerEntity player) {
+        if (!isTarget(current)) {
+            minedCount++;
+            if (minedCount >= targetQuantity) {
+                state = MiningState.COMPLETE;
+                return;
+            }
+            navigator.goTo(client, current);
+            state = MiningState.COLLECTING;
+            tickCounter = 0;
+            return;
+        }
+        if (client.interactionManager == null) return;
+        if (tickCounter > BREAK_TIMEOUT || !player.canInteractWithBlockAt(current, 0)) {
+            client.interactionManager.cancelBlockBreaking();
+            skip("could not be broken");
+            return;
+        }
+        
+        BlockState blockState = client.world.getBlockState(current);
+        if (tickCounter == 1 && !selectTool(player, blockState)) {
+            fail("No tool in the hotbar can harvest " + targetName);
+            return;
+        }
+        
+        Vec3d center = Vec3d.ofCenter(current);
+        Vec3d eyes = player.getEyePos();
+        Direction side = Direction.getFacing(eyes.x - center.x, eyes.y - center.y, eyes.z - center.z);
+        player.lookAt(EntityAnchorArgumentType.EntityAnchor.EYES, center);
+        client.interactionManager.updateBlockBreakingProgress(current, side);
+        player.swingHand(Hand.MAIN_HAND);
+    }
+    
+    /**
+     * Hold the fastest hotbar item that still drops the block. Returns false
+     * if the block needs a tool and none in the hotbar is suitable.
+     */
+    private static boolean selectTool(ClientPlayerEntity player, BlockState blockState) {
+        PlayerInventory inventory = player.getInventory();
+        int best = -1;
+        float bestSpeed = 0;
+        for (int slot = 0; slot < PlayerInventory.getHotbarSize(); slot++) {
+            ItemStack stack = inventory.getStack(slot);
+            if (blockState.isToolRequired() && !stack.isSuitableFor(blockState)) continue;
+            
+            float speed = stack.getMiningSpeedMultiplier(blockState);
+            if (speed > bestSpeed) {
+                bestSpeed = speed;
+                best = slot;
+            }
+        }
+        if (best < 0) {
+            return !blockState.isToolRequired();
+        }
+        inventory.setSelectedSlot(best);
+        return true;
+    }
+    
+    private void skip(String reason) {
+        MCAIAgentMod.LOGGER.warn("Skipping " + targetName + " at " + current + ": " + reason);
+        skipped.add(current.asLong());
+        navigator.stop(client);
+        nextTarget();
+    }
+    
+    /**
+     * Move on to the next target of the tour, planning a new tour from the
+     * current position when the last one is used up
+     */
+    private void nextTarget() {
+        while (!visits.isEmpty() && !isTarget(visits.peek())) {
+            visits.poll();
+        }
+        if (visits.isEmpty()) {
+            planTour();
+        }
+        
+        current = visits.poll();
+        if (current == null) {
+            if (minedCount == 0) {
+                fail("No reachable " + targetName + " found within " + SEARCH_RADIUS + " blocks");
+            } else {
+                MCAIAgentMod.LOGGER.info("Ran out of " + targetName + " after mining " + minedCount);
+                state = MiningState.COMPLETE;
+            }
+            return;
+        }
+        
+        navigator.goTo(client, current);
+        state = MiningState.TRAVELING;
+        tickCounter = 0;
+    }
+    
+    /**
+     * The target a mining run started at origin would walk to first, or null
+     * if none is in range. Lets a queued mine action search its path early.
+     */
+    public BlockPos predictFirstTarget(String blockName, int quantity, BlockPos origin) {
+        OreLocator locator = MCAIAgentMod.getInstance().getOreLocator();
+        Set<Block> blocks = locator.resolveBlocks(blockName);
+        if (blocks.isEmpty() || !OreLocator.isIndexed(blocks.iterator().next())) {
+            return null;
+        }
+        List<BlockPos> targets = locator.findNearest(blocks, origin, Math.max(1, quantity), SEARCH_RADIUS);
+        List<BlockPos> tour = OreLocator.planVisits(origin, targets);
+        return tour.isEmpty() ? null : tour.get(0);
+    }
+    
+    private void planTour() {
+        ClientPlayerEntity player = client.player;
+        if (player == null) return;
+        
+        BlockPos origin = player.getBlockPos();
+        int wanted = targetQuantity - minedCount;
+        List<BlockPos> nearest = MCAIAgentMod.getInstance().getOreLocator()
+            .findNearest(targetBlocks, origin, wanted + skipped.size(), SEARCH_RADIUS);
+            
+        List<BlockPos> targets = new ArrayList<>(wanted);
+        for (BlockPos pos : nearest) {
+            if (!skipped.contains(pos.asLong()) && targets.size() < wanted) {
+                targets.add(pos);
+            }
+        }
+        visits.addAll(OreLocator.planVisits(origin, targets));
+    }
+    
+    private boolean isTarget(BlockPos pos) {
+        return client.world != null && targetBlocks.contains(client.world.getBlockState(pos).getBlock());
+    }
+    
+    private void fail(String reason) {
+        MCAIAgentMod.LOGGER.warn("Mining failed: " + reason);
+        this.error = reason;
+        this.state = MiningState.COMPLETE;
+    }
+    
+    /**
+     * Let go of the controls, keeping the count and the skipped targets
+     */
+    public void suspend() {
+        navigator.stop(client);
+        if (client.interactionManager != null) {
+            client.interactionManager.cancelBlockBreaking();
+        }
+    }
+    
+    /**
+     * Carry on after suspend(), planning a new tour from wherever the player is now
+     */
+    public void resume() {
+        if (state == MiningState.IDLE || state == MiningState.COMPLETE) return;
+        
+        visits.clear();
+        nextTarget();
+    }
+    
+    public void stop() {
+        if (state == MiningState.IDLE) return;
+        
+        navigator.stop(client);
+        if (client.interactionManager != null) {
+            client.interactionManager.cancelBlockBreaking();
+        }
+        state = MiningState.IDLE;
+    }
+    
+    public boolean isActive() {
+        return state != MiningState.IDLE;
+    }
+    
+    /**
+     * Why the last run stopped early, or null if it finished
+     */
+    public String getError() {
+        return error;
+    }
+    
+    public int getMinedCount() {
+        return minedCount;
+    }
+    
+    public JsonObject getProgress() {
+        JsonObject progress = new JsonObject();
+        progress.addProperty("state", state.name());
+        progress.addProperty("minedCount", minedCount);
+        progress.addProperty("targetQuantity", targetQuantity);
+        progress.addProperty("plannedTargets", visits.size());
+        return progress;
+    }
+}
@@ -0,0 +1,201 @@
+package com.helixyt2.mcaiagent.automation;
+
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.recipe.NetworkRecipeId;
+import net.minecraft.recipe.RecipeDisplayEntry;
+import net.minecraft.recipe.display.RecipeDisplay;
+import net.minecraft.recipe.display.ShapedCraftingRecipeDisplay;
+import net.minecraft.recipe.display.ShapelessCraftingRecipeDisplay;
+import net.minecraft.recipe.display.SlotDisplay;
+import net.minecraft.recipe.display.SlotDisplayContexts;
+import net.minecraft.registry.Registries;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.context.ContextParameterMap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Index from output item to the crafting recipes that produce it, so lookups
+ * are a map access instead of a scan over every recipe.
+ *
+ * Since 1.21.2 the server no longer sends recipes to the client; all the
+ * client knows are the recipe book entries of the recipes the player has
+ * unlocked, which are also the only ones the recipe book can click into a
+ * grid. The entries are kept as the recipe book add/remove packets arrive
+ * and the index is rebuilt on the next lookup after a change.
+ */
+public class RecipeIndex {
+    /**
+     * A crafting recipe as the recipe book shows it: the items each
+     * ingredient slot accepts (empty cells left out), the result, and whether
+     * it fits the inventory's 2x2 grid
+     */
+    public record CraftingEntry(NetworkRecipeId id, Item output, int count, List<List<Item>> ingredients,
+                                boolean fitsInventoryGrid) {
+    }
+    
+    private final MinecraftClient client;
+    private final Map<NetworkRecipeId, RecipeDisplayEntry> entries = new LinkedHashMap<>(); // In recipe book order
+    private Map<Item, List<CraftingEntry>> byOutput = Collections.emptyMap();
+    private boolean dirty = false;
+    private int generation = 0; // Bumped on every rebuild so dependent caches can reset
+    
+    // Common names the backend/LLM uses that aren't item ids
+    private final Map<String, Identifier> aliases = new HashMap<>();
+    
+    public RecipeIndex(MinecraftClient client) {
+        this.client = client;
+        registerAlias("planks", Identifier.of("minecraft", "oak_planks"));
+        registerAlias("wood", Identifier.of("minecraft", "oak_planks"));
+        registerAlias("sticks", Identifier.of("minecraft", "stick"));
+        registerAlias("table", Identifier.of("minecraft", "crafting_table"));
+        registerAlias("workbench", Identifier.of("minecraft", "crafting_table"));
+        registerAlias("torches", Identifier.of("minecraft", "torch"));
+    }
+    
+    public void registerAlias(String alias, Identifier itemId) {
+        aliases.put(alias.toLowerCase(Locale.ROOT), itemId);
+    }
+    
+    /**
+     * Recipe book entries unlocked (or, with replace, the whole book resent)
+     */
+    public void onRecipesAdded(Collection<RecipeDisplayEntry> added, boolean replace) {
+        if (replace) {
+            entries.clear();
+        }
+        for (RecipeDisplayEntry entry : added) {
+            entries.put(entry.id(), entry);
+        }
+        dirty = true;
+    }
+    
+    public void onRecipesRemoved(Collection<NetworkRecipeId> removed) {
+        for (NetworkRecipeId id : removed) {
+            entries.remove(id);
+        }
+        dirty = true;
+    }
+    
+    /**
+     * Forget the recipe book, e.g. on disconnect
+     */
+    public void clear() {
+        entries.clear();
+        dirty = true;
+    }
+    
+    /**
+     * Rebuild the output index from the recipe book entries
+     */
+    public void rebuild() {
+        Map<Item, List<CraftingEntry>> index = new Reference2ObjectOpenHashMap<>();
+        if (client.world != null) {
+            ContextParameterMap context = SlotDisplayContexts.createParameters(client.world);
+            for (RecipeDisplayEntry entry : entries.values()) {
+                CraftingEntry recipe = toCraftingEntry(entry, context);
+                if (recipe != null) {
+                    index.computeIfAbsent(recipe.output(), item -> new ArrayList<>()).add(recipe);
+                }
+            }
+        }
+        
+        byOutput = index;
+        dirty = false;
+        generation++;
+    }
+    
+    /**
+     * Null for anything but shaped and shapeless crafting (furnace,
+     * stonecutter and smithing entries share the recipe book)
+     */
+    private static CraftingEntry toCraftingEntry(RecipeDisplayEntry entry, ContextParameterMap context) {
+        RecipeDisplay display = entry.display();
+        List<SlotDisplay> slots;
+        boolean fitsInventoryGrid;
+        if (display instanceof ShapedCraftingRecipeDisplay shaped) {
+            slots = shaped.ingredients();
+            fitsInventoryGrid = shaped.width() <= 2 && shaped.height() <= 2;
+        } else if (display instanceof ShapelessCraftingRecipeDisplay shapeless) {
+            slots = shapeless.ingredients();
+            fitsInventoryGrid = slots.size() <= 4;
+        } else {
+            return null;
+        }
+        
+        List<ItemStack> results = display.result().getStacks(context);
+        if (results.isEmpty() || results.get(0).isEmpty()) {
+            return null; // Special recipes (dyeing, map cloning, ...)
+        }
+        
+        List<List<Item>> ingredients = new ArrayList<>(slots.size());
+        for (SlotDisplay slot : slots) {
+            List<Item> items = new ArrayList<>();
+            for (ItemStack stack : slot.getStacks(context)) {
+                if (!stack.isEmpty() && !items.contains(stack.getItem())) {
+                    items.add(stack.getItem());
+                }
+            }
+            if (!items.isEmpty()) {
+                ingredients.add(List.copyOf(items));
+            }
+        }
+        ItemStack result = results.get(0);
+        return new CraftingEntry(entry.id(), result.getItem(), result.getCount(), List.copyOf(ingredients),
+            fitsInventoryGrid);
+    }
+    
+    /**
+     * Recipes producing the named item. Accepts full ids ("minecraft:stick"),
+     * bare names ("stick") and aliases ("sticks"). Empty if nothing matches.
+     */
+    public List<CraftingEntry> find(String name) {
+        Item item = resolveItem(name);
+        return item != null ? getRecipes(item) : Collections.emptyList();
+    }
+    
+    public List<CraftingEntry> getRecipes(Item item) {
+        ensureCurrent();
+        List<CraftingEntry> recipes = byOutput.get(item);
+        return recipes != null ? recipes : Collections.emptyList();
+    }
+    
+    /**
+     * Resolve an item by exact id, bare name or alias, or null if unknown
+     */
+    public Item resolveItem(String name) {
+        String key = name.trim().toLowerCase(Locale.ROOT);
+        
+        Identifier id = Identifier.tryParse(key.contains(":") ? key : "minecraft:" + key);
+        if (id != null && Registries.ITEM.containsId(id)) {
+            return Registries.ITEM.get(id);
+        }
+        
+        Identifier alias = aliases.get(key);
+        if (alias != null && Registries.ITEM.containsId(alias)) {
+            return Registries.ITEM.get(alias);
+        }
+        return null;
+    }
+    
+    public int getGeneration() {
+        ensureCurrent();
+        return generation;
+    }
+    
+    private void ensureCurrent() {
+        if (dirty) {
+            rebuild();
+        }
+    }
+}
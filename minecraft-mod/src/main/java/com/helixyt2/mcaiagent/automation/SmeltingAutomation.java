@@ -1,26 +1,74 @@
 package com.helixyt2.mcaiagent.automation;
 
 import com.google.gson.JsonObject;
+import com.helixyt2.mcaiagent.MCAIAgentMod;
+import com.helixyt2.mcaiagent.mixin.AbstractFurnaceScreenHandlerAccessor;
+import com.helixyt2.mcaiagent.state.InventoryIndex;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
 import net.minecraft.block.Blocks;
 import net.minecraft.block.entity.AbstractFurnaceBlockEntity;
-import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.network.ClientPlayerEntity;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.entity.player.PlayerInventory;
+import net.minecraft.item.FuelRegistry;
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.item.Items;
+import net.minecraft.screen.AbstractFurnaceScreenHandler;
+import net.minecraft.screen.PropertyDelegate;
+import net.minecraft.screen.ScreenHandler;
+import net.minecraft.screen.slot.SlotActionType;
+import net.minecraft.util.Hand;
 import net.minecraft.util.hit.BlockHitResult;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
 import net.minecraft.util.math.Vec3d;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Smelts across several furnaces at once: finds (or places) up to maxFurnaces
+ * furnaces within reach, splits the input between them, then collects from
+ * each as it finishes. Finish times come from the furnaces' synced cook
+ * progress, read whenever a furnace screen is open.
+ */
 public class SmeltingAutomation {
+    public static final int DEFAULT_FURNACES = 4;
+    private static final int FURNACE_REACH = 4; // Blocks
+    private static final int RESPONSE_TIMEOUT = 40; // Ticks to wait for the server to react
+    private static final int COOK_TIME = 200; // Ticks per item until the furnace reports its own
+    private static final int OPEN_LEAD = 5; // Open a furnace this many ticks before it should finish
+    private static final int WATCH_WINDOW = 40; // Keep a furnace open if it finishes within this many ticks
+    
+    // AbstractFurnaceScreenHandler slot layout
+    private static final int INPUT_SLOT = 0;
+    private static final int FUEL_SLOT = 1;
+    private static final int OUTPUT_SLOT = 2;
+    
     private MinecraftClient client;
     private int tickCounter = 0;
+    private long elapsedTicks = 0; // World time, so furnace timing holds across ticks we were paused
     private SmeltingState state = SmeltingState.IDLE;
     private String targetItem;
+    private Item inputItem;
     private int targetQuantity;
+    private int maxFurnaces = DEFAULT_FURNACES;
     private int smeltedCount = 0;
-    private BlockPos furnacePos;
+    private int roundStart; // smeltedCount when the current load round started
+    private String error;
+    private boolean fuelShort;
+    private final FuelPlanner fuelPlanner = new FuelPlanner();
+    
+    // One job per furnace in use; current is the furnace being opened or worked on
+    private final List<FurnaceJob> jobs = new ArrayList<>();
+    private FurnaceJob current;
+    private BlockPos workPos; // Where the player stood when the furnaces were picked
+    private BlockPos placingAt;
+    private boolean screenSettled;
     
     private enum SmeltingState {
         IDLE,
@@ -29,19 +77,52 @@ public class SmeltingAutomation {
         OPENING_FURNACE,
         ADDING_FUEL,
         ADDING_ITEMS,
+        STARTING_SMELT,
         WAITING_FOR_SMELT,
         COLLECTING_RESULT,
         COMPLETE
     }
     
+    private enum JobState {
+        LOADING,
+        SMELTING,
+        DONE
+    }
+    
+    private static class FurnaceJob {
+        final BlockPos pos;
+        int assigned;
+        int collected;
+        int cookTotal = COOK_TIME; // Ticks per item, as synced by the furnace
+        long readyAt; // Tick the current load should be finished
+        JobState state = JobState.LOADING;
+        final Deque<FuelPlanner.FuelLoad> fuel = new ArrayDeque<>(); // Planned, not yet loaded
+        
+        FurnaceJob(BlockPos pos) {
+            this.pos = pos;
+        }
+    }
+    
     public SmeltingAutomation(MinecraftClient client) {
         this.client = client;
     }
     
     public void startSmelting(String item, int quantity) {
+        startSmelting(item, quantity, DEFAULT_FURNACES);
+    }
+    
+    public void startSmelting(String item, int quantity, int furnaces) {
         this.targetItem = item;
+        this.inputItem = MCAIAgentMod.getInstance().getRecipeIndex().resolveItem(item);
         this.targetQuantity = quantity;
+        this.maxFurnaces = Math.max(1, furnaces);
         this.smeltedCount = 0;
+        this.error = null;
+        this.fuelShort = false;
+        this.jobs.clear();
+        this.current = null;
+        this.workPos = null;
+        this.placingAt = null;
         this.state = SmeltingState.FINDING_FURNACE;
         this.tickCounter = 0;
     }
@@ -50,81 +131,74 @@ public class SmeltingAutomation {
         tickCounter++;
         ClientPlayerEntity player = client.player;
         if (player == null) return false;
+        elapsedTicks = player.getWorld().getTime();
         
         switch (state) {
             case IDLE:
                 return false;
                 
             case FINDING_FURNACE:
-                // Look for nearby furnace
-                if (tickCounter > 10) {
-                    furnacePos = findNearbyFurnace(player);
-                    if (furnacePos != null) {
-                        state = SmeltingState.OPENING_FURNACE;
-                    } else {
-                        state = SmeltingState.PLACING_FURNACE;
-                    }
-                    tickCounter = 0;
-                }
+                findFurnaces(player);
                 break;
                 
             case PLACING_FURNACE:
-                // Place a furnace if we have one
-                if (tickCounter > 20) {
-                    boolean placed = placeFurnace(player);
-                    if (placed) {
-                        state = SmeltingState.OPENING_FURNACE;
-                    } else {
-                        // Can't continue without furnace
-                        state = SmeltingState.COMPLETE;
-                    }
-                    tickCounter = 0;
-                }
+                placeFurnaces(player);
                 break;
                 
             case OPENING_FURNACE:
-                // Open the furnace UI
-                if (tickCounter > 10) {
-                    openFurnace();
-                    state = SmeltingState.ADDING_FUEL;
+                // Wait for the server to open the furnace we clicked
+                if (player.currentScreenHandler instanceof AbstractFurnaceScreenHandler) {
+                    // Give the slot contents and properties sent with the screen a tick to arrive
+                    if (!screenSettled) {
+                        screenSettled = true;
+                        break;
+                    }
+                    state = current.state == JobState.LOADING ? SmeltingState.ADDING_FUEL : SmeltingState.COLLECTING_RESULT;
                     tickCounter = 0;
+                } else if (tickCounter > RESPONSE_TIMEOUT) {
+                    // Skip this furnace; its share is not smelted
+                    MCAIAgentMod.LOGGER.warn("Furnace at " + current.pos + " did not open");
+                    current.state = JobState.DONE;
+                    state = SmeltingState.WAITING_FOR_SMELT;
                 }
                 break;
                 
             case ADDING_FUEL:
-                // Add coal or other fuel
-                if (tickCounter > 10) {
-                    boolean fuelAdded = addFuel();
-                    state = SmeltingState.ADDING_ITEMS;
-                    tickCounter = 0;
+                if (!addFuel(player, current.assigned)) {
+                    // Skip this furnace rather than load input it cannot smelt
+                    MCAIAgentMod.LOGGER.warn("No fuel left for furnace at " + current.pos);
+                    fuelShort = true;
+                    current.state = JobState.DONE;
+                    closeFurnace();
+                    openNextToLoad(player);
+                    break;
                 }
+                state = SmeltingState.ADDING_ITEMS;
                 break;
                 
             case ADDING_ITEMS:
-                // Add items to smelt
-                if (tickCounter > 10) {
-                    boolean itemsAdded = addItemsToSmelt();
-                    state = SmeltingState.WAITING_FOR_SMELT;
+                current.assigned = addItemsToSmelt(player);
+                if (current.assigned > 0) {
+                    state = SmeltingState.STARTING_SMELT;
                     tickCounter = 0;
+                } else {
+                    current.state = JobState.DONE;
+                    closeFurnace();
+                    openNextToLoad(player);
                 }
                 break;
                 
+            case STARTING_SMELT:
+                // Wait for the furnace to light so its cook time is known
+                startSmelt(player);
+                break;
+                
             case WAITING_FOR_SMELT:
-                // Wait for smelting to complete
-                // In real implementation, would check furnace progress
-                if (tickCounter > 200) { // ~10 seconds
-                    state = SmeltingState.COLLECTING_RESULT;
-                    tickCounter = 0;
-                }
+                openNextReady(player);
                 break;
                 
             case COLLECTING_RESULT:
-                // Collect smelted items
-                if (tickCounter > 10) {
-                    collectResults();
-                    smeltedCount += targetQuantity; // Simplified
-                    state = SmeltingState.COMPLETE;
-                }
+                watchFurnace(player);
                 break;
                 
             case COMPLETE:
@@ -136,51 +210,297 @@ public class SmeltingAutomation {
         return false;
     }
     
-    private BlockPos findNearbyFurnace(ClientPlayerEntity player) {
-        BlockPos playerPos = player.getBlockPos();
-        int searchRadius = 10;
+    /**
+     * Use the furnaces already in reach, placing more from the inventory if
+     * there is enough input to keep them busy
+     */
+    private void findFurnaces(ClientPlayerEntity player) {
+        if (inputItem == null) {
+            fail("Unknown item: " + targetItem);
+            return;
+        }
+        
+        int available = Math.min(targetQuantity, MCAIAgentMod.getInstance().getInventoryIndex().count(inputItem));
+        if (available <= 0) {
+            fail("No " + targetItem + " to smelt");
+            return;
+        }
+        
+        // More furnaces than items would sit idle
+        workPos = player.getBlockPos();
+        int wanted = Math.min(maxFurnaces, available);
+        for (BlockPos pos : findNearbyFurnaces(player)) {
+            if (jobs.size() >= wanted) break;
+            jobs.add(new FurnaceJob(pos));
+        }
+        
+        if (jobs.size() < wanted && MCAIAgentMod.getInstance().getInventoryIndex().has(Items.FURNACE)) {
+            state = SmeltingState.PLACING_FURNACE;
+            tickCounter = 0;
+        } else {
+            startLoading(player);
+        }
+    }
+    
+    private List<BlockPos> findNearbyFurnaces(ClientPlayerEntity player) {
+        // Answered from the chunk index instead of scanning the surrounding cube
+        return MCAIAgentMod.getInstance().getBlockIndex()
+            .findWithin(Blocks.FURNACE, player.getBlockPos(), FURNACE_REACH);
+    }
+    
+    /**
+     * Place one furnace at a time, waiting for the block to appear before the next
+     */
+    private void placeFurnaces(ClientPlayerEntity player) {
+        ClientWorld world = client.world;
+        if (placingAt != null) {
+            if (world.getBlockState(placingAt).isOf(Blocks.FURNACE)) {
+                jobs.add(new FurnaceJob(placingAt));
+                placingAt = null;
+            } else if (tickCounter > RESPONSE_TIMEOUT) {
+                MCAIAgentMod.LOGGER.warn("Furnace placement at " + placingAt + " was rejected");
+                startLoading(player);
+                return;
+            } else {
+                return;
+            }
+        }
         
-        for (int x = -searchRadius; x <= searchRadius; x++) {
-            for (int y = -searchRadius; y <= searchRadius; y++) {
-                for (int z = -searchRadius; z <= searchRadius; z++) {
-                    BlockPos pos = playerPos.add(x, y, z);
-                    if (client.world != null && 
-                        client.world.getBlockState(pos).getBlock() == Blocks.FURNACE) {
+        int available = Math.min(targetQuantity, MCAIAgentMod.getInstance().getInventoryIndex().count(inputItem));
+        if (jobs.size() >= Math.min(maxFurnaces, available) || !placeFurnace(player)) {
+            startLoading(player);
+        }
+        tickCounter = 0;
+    }
+    
+    private boolean placeFurnace(ClientPlayerEntity player) {
+        InventoryIndex inventory = MCAIAgentMod.getInstance().getInventoryIndex();
+        int slot = inventory.firstSlot(Items.FURNACE);
+        if (slot < 0 || client.interactionManager == null) return false;
+        
+        BlockPos target = findPlacementSpot(player);
+        if (target == null) return false;
+        
+        // Furnace must be in the hotbar to be placed
+        if (slot >= 9) {
+            int hotbarSlot = player.getInventory().getSelectedSlot();
+            client.interactionManager.clickSlot(player.playerScreenHandler.syncId, slot, hotbarSlot, SlotActionType.SWAP, player);
+        } else {
+            player.getInventory().setSelectedSlot(slot);
+        }
+        
+        BlockPos support = target.down();
+        BlockHitResult hitResult = new BlockHitResult(Vec3d.ofCenter(support).add(0, 0.5, 0), Direction.UP, support, false);
+        client.interactionManager.interactBlock(player, Hand.MAIN_HAND, hitResult);
+        placingAt = target;
+        return true;
+    }
+    
+    /**
+     * Free block next to the player, standing on a solid block and not yet used
+     */
+    private BlockPos findPlacementSpot(ClientPlayerEntity player) {
+        ClientWorld world = client.world;
+        BlockPos feet = player.getBlockPos();
+        for (int radius = 1; radius <= 2; radius++) {
+            for (int dx = -radius; dx <= radius; dx++) {
+                for (int dz = -radius; dz <= radius; dz++) {
+                    if (Math.max(Math.abs(dx), Math.abs(dz)) != radius) continue;
+                    
+                    BlockPos pos = feet.add(dx, 0, dz);
+                    BlockPos below = pos.down();
+                    if (world.getBlockState(pos).isReplaceable()
+                        && world.getBlockState(below).isSideSolidFullSquare(world, below, Direction.UP)) {
                         return pos;
                     }
                 }
             }
         }
-        
         return null;
     }
     
-    private boolean placeFurnace(ClientPlayerEntity player) {
-        // Check if player has furnace in inventory
-        for (int i = 0; i < player.getInventory().size(); i++) {
-            ItemStack stack = player.getInventory().getStack(i);
-            if (stack.getItem() == Items.FURNACE) {
-                // Place furnace in front of player
-                // Simplified - would need actual block placement logic
-                return true;
+    private void startLoading(ClientPlayerEntity player) {
+        if (jobs.isEmpty()) {
+            fail("No furnace within reach and none to place");
+            return;
+        }
+        
+        // Split the input as evenly as possible, one input stack per furnace at most;
+        // whatever does not fit goes into the next round
+        roundStart = smeltedCount;
+        int available = Math.min(targetQuantity - smeltedCount, MCAIAgentMod.getInstance().getInventoryIndex().count(inputItem));
+        available = Math.min(available, jobs.size() * inputItem.getMaxCount());
+        int share = available / jobs.size();
+        int extra = available % jobs.size();
+        for (int i = 0; i < jobs.size(); i++) {
+            jobs.get(i).assigned = share + (i < extra ? 1 : 0);
+        }
+        MCAIAgentMod.LOGGER.info("Smelting " + available + " " + targetItem + " in " + jobs.size() + " furnaces");
+        planFuel();
+        openNextToLoad(player);
+    }
+    
+    /**
+     * Reserve fuel for every furnace up front, biggest share first, so one
+     * furnace cannot burn the fuel another one needs
+     */
+    private void planFuel() {
+        FuelRegistry fuels = client.world.getFuelRegistry();
+        Reference2IntOpenHashMap<Item> stock = new Reference2IntOpenHashMap<>(MCAIAgentMod.getInstance().getInventoryIndex().getTotals());
+        List<FurnaceJob> byShare = new ArrayList<>(jobs);
+        byShare.sort((a, b) -> Integer.compare(b.assigned, a.assigned));
+        
+        for (FurnaceJob job : byShare) {
+            List<FuelPlanner.FuelLoad> plan = fuelPlanner.plan(job.assigned * job.cookTotal, stock, fuels, inputItem);
+            if (plan == null) {
+                // Planned again against the furnace's own fuel once it is open
+                continue;
+            }
+            for (FuelPlanner.FuelLoad load : plan) {
+                job.fuel.add(load);
+                stock.addTo(load.item(), -load.count());
             }
         }
-        return false;
     }
     
-    private void openFurnace() {
-        if (furnacePos == null || client.interactionManager == null) return;
+    private void openNextToLoad(ClientPlayerEntity player) {
+        for (FurnaceJob job : jobs) {
+            if (job.state == JobState.LOADING) {
+                openFurnace(player, job);
+                return;
+            }
+        }
+        state = SmeltingState.WAITING_FOR_SMELT;
+    }
+    
+    private void startSmelt(ClientPlayerEntity player) {
+        ScreenHandler handler = player.currentScreenHandler;
+        if (!(handler instanceof AbstractFurnaceScreenHandler furnace)) {
+            // Closed before it lit; fall back to the default cook time
+            current.readyAt = elapsedTicks + (long) current.assigned * current.cookTotal;
+            current.state = JobState.SMELTING;
+            openNextToLoad(player);
+            return;
+        }
         
-        // Interact with furnace block
-        BlockHitResult hitResult = new BlockHitResult(
-            Vec3d.ofCenter(furnacePos),
-            Direction.UP,
-            furnacePos,
-            false
-        );
+        boolean lit = furnace.isBurning() && properties(handler).get(AbstractFurnaceBlockEntity.COOK_TIME_TOTAL_PROPERTY_INDEX) > 0;
+        if (lit || tickCounter > RESPONSE_TIMEOUT) {
+            current.readyAt = elapsedTicks + ticksUntilDone(handler, current);
+            current.state = JobState.SMELTING;
+            closeFurnace();
+            openNextToLoad(player);
+        }
+    }
+    
+    /**
+     * Open the furnace that finishes first once it is about to be done. Once
+     * all are done, load another round if more is wanted, there is input
+     * left and the last round smelted anything.
+     */
+    private void openNextReady(ClientPlayerEntity player) {
+        FurnaceJob next = nextToFinish();
+        if (next == null) {
+            if (smeltedCount == 0 && fuelShort) {
+                fail("Not enough fuel to smelt " + targetItem);
+            } else if (smeltedCount < targetQuantity && smeltedCount > roundStart
+                && MCAIAgentMod.getInstance().getInventoryIndex().has(inputItem)) {
+                for (FurnaceJob job : jobs) {
+                    job.state = JobState.LOADING;
+                    job.fuel.clear();
+                }
+                startLoading(player);
+            } else {
+                state = SmeltingState.COMPLETE;
+            }
+        } else if (elapsedTicks >= next.readyAt - OPEN_LEAD) {
+            openFurnace(player, next);
+        }
+    }
+    
+    private FurnaceJob nextToFinish() {
+        FurnaceJob next = null;
+        for (FurnaceJob job : jobs) {
+            if (job.state == JobState.SMELTING && (next == null || job.readyAt < next.readyAt)) {
+                next = job;
+            }
+        }
+        return next;
+    }
+    
+    /**
+     * Follow an open furnace's synced progress: collect the tick its input is
+     * used up, refuel it if it went out, and move on if another furnace will
+     * finish first.
+     */
+    private void watchFurnace(ClientPlayerEntity player) {
+        ScreenHandler handler = player.currentScreenHandler;
+        if (!(handler instanceof AbstractFurnaceScreenHandler furnace)) {
+            // Closed under us; look again right away
+            current.readyAt = elapsedTicks;
+            state = SmeltingState.WAITING_FOR_SMELT;
+            return;
+        }
+        
+        long remaining = ticksUntilDone(handler, current);
+        if (remaining == 0) {
+            collectResults(player);
+            current.state = JobState.DONE;
+            closeFurnace();
+            state = SmeltingState.WAITING_FOR_SMELT;
+            return;
+        }
+        
+        // Top up before the furnace goes out if more fuel was planned for it
+        boolean needsFuel = !handler.getSlot(FUEL_SLOT).hasStack() && (!furnace.isBurning() || !current.fuel.isEmpty());
+        if (needsFuel && !addFuel(player, handler.getSlot(INPUT_SLOT).getStack().getCount()) && !furnace.isBurning()) {
+            // Out of fuel with input left: keep what was smelted
+            MCAIAgentMod.LOGGER.warn("Furnace at " + current.pos + " ran out of fuel");
+            collectResults(player);
+            current.state = JobState.DONE;
+            closeFurnace();
+            state = SmeltingState.WAITING_FOR_SMELT;
+            return;
+        }
+        
+        current.readyAt = elapsedTicks + remaining;
+        if (remaining > WATCH_WINDOW || nextToFinish() != current) {
+            collectResults(player);
+            closeFurnace();
+            state = SmeltingState.WAITING_FOR_SMELT;
+        }
+    }
+    
+    /**
+     * Ticks until the furnace has used up its input, from the synced cook progress
+     */
+    private static long ticksUntilDone(ScreenHandler handler, FurnaceJob job) {
+        PropertyDelegate properties = properties(handler);
+        int cookTotal = properties.get(AbstractFurnaceBlockEntity.COOK_TIME_TOTAL_PROPERTY_INDEX);
+        if (cookTotal > 0) {
+            job.cookTotal = cookTotal;
+        }
         
-        // This would open the furnace UI
-        // client.interactionManager.interactBlock(...);
+        int input = handler.getSlot(INPUT_SLOT).getStack().getCount();
+        if (input == 0) {
+            return 0;
+        }
+        int cooked = properties.get(AbstractFurnaceBlockEntity.COOK_TIME_PROPERTY_INDEX);
+        return Math.max(1, job.cookTotal - cooked) + (long) (input - 1) * job.cookTotal;
+    }
+    
+    private static PropertyDelegate properties(ScreenHandler handler) {
+        return ((AbstractFurnaceScreenHandlerAccessor) handler).mcaiagent$getPropertyDelegate();
+    }
+    
+    private void openFurnace(ClientPlayerEntity player, FurnaceJob job) {
+        current = job;
+        state = SmeltingState.OPENING_FURNACE;
+        screenSettled = false;
+        tickCounter = 0;
+        if (client.interactionManager == null) return;
+        
+        BlockHitResult hitResult = new BlockHitResult(Vec3d.ofCenter(job.pos), Direction.UP, job.pos, false);
+        client.interactionManager.interactBlock(player, Hand.MAIN_HAND, hitResult);
     }
     
     private void closeFurnace() {
@@ -189,32 +509,187 @@ public class SmeltingAutomation {
         }
     }
     
-    private boolean addFuel() {
-        // Add coal or other fuel to furnace
-        // Would interact with furnace slots
-        return true;
+    /**
+     * Make sure the open furnace has fuel for items more smelts: counts what is
+     * burning and in the fuel slot, then loads the next planned fuel, planning
+     * afresh from the unreserved inventory when nothing is left in the plan
+     */
+    private boolean addFuel(ClientPlayerEntity player, int items) {
+        ScreenHandler handler = player.currentScreenHandler;
+        FuelRegistry fuels = client.world.getFuelRegistry();
+        ItemStack inSlot = handler.getSlot(FUEL_SLOT).getStack();
+        int burning = properties(handler).get(AbstractFurnaceBlockEntity.BURN_TIME_PROPERTY_INDEX)
+            + fuels.getFuelTicks(inSlot) * inSlot.getCount();
+        int missingTicks = items * current.cookTotal - burning;
+        if (missingTicks <= 0) {
+            current.fuel.clear(); // Already covered; free the reservation
+            return true;
+        }
+        
+        if (current.fuel.isEmpty()) {
+            List<FuelPlanner.FuelLoad> plan = fuelPlanner.plan(missingTicks, unreservedStock(), fuels, inputItem);
+            if (plan == null) return false;
+            current.fuel.addAll(plan);
+        }
+        
+        // The slot takes one fuel type at a time; the rest goes in as it burns down
+        FuelPlanner.FuelLoad load = current.fuel.peek();
+        if (!inSlot.isEmpty() && !inSlot.isOf(load.item())) {
+            return true;
+        }
+        int room = load.item().getMaxCount() - inSlot.getCount();
+        int moved = moveItems(player, handler, load.item(), Math.min(load.count(), room), FUEL_SLOT);
+        current.fuel.poll();
+        if (moved < load.count()) {
+            current.fuel.push(new FuelPlanner.FuelLoad(load.item(), load.count() - moved));
+        }
+        return moved > 0;
     }
     
-    private boolean addItemsToSmelt() {
-        // Add items to smelt slot
-        // Would interact with furnace slots
-        return true;
+    // Inventory totals minus the fuel other furnaces still have planned
+    private Reference2IntOpenHashMap<Item> unreservedStock() {
+        Reference2IntOpenHashMap<Item> stock = new Reference2IntOpenHashMap<>(MCAIAgentMod.getInstance().getInventoryIndex().getTotals());
+        for (FurnaceJob job : jobs) {
+            if (job == current) continue;
+            for (FuelPlanner.FuelLoad load : job.fuel) {
+                stock.addTo(load.item(), -load.count());
+            }
+        }
+        return stock;
+    }
+    
+    /**
+     * Load the furnace's share into the input slot, only on top of the same
+     * item and only as much as fits, so nothing is left on the cursor
+     */
+    private int addItemsToSmelt(ClientPlayerEntity player) {
+        ScreenHandler handler = player.currentScreenHandler;
+        ItemStack inSlot = handler.getSlot(INPUT_SLOT).getStack();
+        if (!inSlot.isEmpty() && !inSlot.isOf(inputItem)) {
+            MCAIAgentMod.LOGGER.warn("Furnace at " + current.pos + " is busy with " + inSlot.getItem());
+            return 0;
+        }
+        int room = inputItem.getMaxCount() - inSlot.getCount();
+        return moveItems(player, handler, inputItem, Math.min(current.assigned, room), INPUT_SLOT);
+    }
+    
+    /**
+     * Shift-click the output slot and count what actually left it; a full
+     * inventory leaves the rest behind
+     */
+    private void collectResults(ClientPlayerEntity player) {
+        ScreenHandler handler = player.currentScreenHandler;
+        ItemStack output = handler.getSlot(OUTPUT_SLOT).getStack();
+        if (output.isEmpty()) return;
+        
+        int before = output.getCount();
+        client.interactionManager.clickSlot(handler.syncId, OUTPUT_SLOT, 0, SlotActionType.QUICK_MOVE, player);
+        int taken = before - handler.getSlot(OUTPUT_SLOT).getStack().getCount();
+        current.collected += taken;
+        smeltedCount += taken;
+        if (taken < before) {
+            MCAIAgentMod.LOGGER.warn("Inventory full, left " + (before - taken) + " in furnace at " + current.pos);
+        }
+    }
+    
+    /**
+     * Move up to amount of an item from the player's inventory into a furnace slot.
+     * Whole stacks are dropped in directly; a partial stack is placed one at a time
+     * and the rest put back. Returns how many were moved.
+     */
+    private int moveItems(ClientPlayerEntity player, ScreenHandler handler, Item item, int amount, int targetSlot) {
+        long slots = MCAIAgentMod.getInstance().getInventoryIndex().slotsOf(item);
+        int moved = 0;
+        while (slots != 0 && moved < amount) {
+            int slot = Long.numberOfTrailingZeros(slots);
+            slots &= slots - 1;
+            if (slot >= PlayerInventory.MAIN_SIZE) break; // Armor and offhand are not in the furnace screen
+            
+            int handlerSlot = furnaceSlotFor(slot);
+            ItemStack stack = handler.getSlot(handlerSlot).getStack();
+            if (!stack.isOf(item)) continue;
+            
+            int stackCount = stack.getCount();
+            int take = Math.min(stackCount, amount - moved);
+            client.interactionManager.clickSlot(handler.syncId, handlerSlot, 0, SlotActionType.PICKUP, player);
+            if (take == stackCount) {
+                client.interactionManager.clickSlot(handler.syncId, targetSlot, 0, SlotActionType.PICKUP, player);
+            } else {
+                for (int i = 0; i < take; i++) {
+                    client.interactionManager.clickSlot(handler.syncId, targetSlot, 1, SlotActionType.PICKUP, player);
+                }
+                client.interactionManager.clickSlot(handler.syncId, handlerSlot, 0, SlotActionType.PICKUP, player);
+            }
+            moved += take;
+        }
+        return moved;
+    }
+    
+    // Player inventory index -> furnace screen slot: main inventory follows the
+    // three furnace slots, the hotbar comes last
+    private static int furnaceSlotFor(int inventorySlot) {
+        return inventorySlot < 9 ? 30 + inventorySlot : inventorySlot - 6;
     }
     
-    private void collectResults() {
-        // Collect smelted items from result slot
-        // Would interact with furnace slots
+    private void fail(String reason) {
+        MCAIAgentMod.LOGGER.warn("Smelting failed: " + reason);
+        this.error = reason;
+        this.state = SmeltingState.COMPLETE;
+    }
+    
+    /**
+     * Whether the run can be paused right now: only while it waits for
+     * furnaces to finish, never with a furnace half loaded
+     */
+    public boolean canSuspend() {
+        return state == SmeltingState.WAITING_FOR_SMELT;
+    }
+    
+    /**
+     * Where to walk back to if a furnace in use went out of reach, e.g. when
+     * another action moved the player during a suspension; null while every
+     * furnace is in reach
+     */
+    public BlockPos getReturnPos() {
+        ClientPlayerEntity player = client.player;
+        if (player == null || workPos == null || player.getBlockPos().equals(workPos)) return null;
+        
+        for (FurnaceJob job : jobs) {
+            if (!job.pos.isWithinDistance(player.getBlockPos(), FURNACE_REACH)) {
+                return workPos;
+            }
+        }
+        return null;
+    }
+    
+    public void stop() {
+        if (state == SmeltingState.IDLE) return;
+        
+        closeFurnace();
+        state = SmeltingState.IDLE;
     }
     
     public boolean isActive() {
         return state != SmeltingState.IDLE;
     }
     
+    /**
+     * Why the last run stopped early, or null if it finished
+     */
+    public String getError() {
+        return error;
+    }
+    
+    public int getSmeltedCount() {
+        return smeltedCount;
+    }
+    
     public JsonObject getProgress() {
         JsonObject progress = new JsonObject();
         progress.addProperty("state", state.name());
         progress.addProperty("smeltedCount", smeltedCount);
         progress.addProperty("targetQuantity", targetQuantity);
+        progress.addProperty("furnaces", jobs.size());
         return progress;
     }
 }
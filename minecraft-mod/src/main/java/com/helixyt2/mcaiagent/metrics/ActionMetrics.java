@@ -0,0 +1,116 @@
+package com.helixyt2.mcaiagent.metrics;
+
+import com.google.gson.JsonObject;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms and outcome counts per action type, covering each
+ * step of an action's life: waiting in the queue, ticks until it first
+ * visibly does something, how long it runs, and how long its result takes
+ * to reach the socket.
+ *
+ * The executor records on the client thread and the sender thread records
+ * send delays; snapshots can be taken from any thread.
+ */
+public class ActionMetrics {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    
+    public enum Outcome {
+        COMPLETED,
+        FAILED,
+        TIMED_OUT, // Missed its deadline or gave up waiting
+        CANCELED
+    }
+    
+    private static final class TypeStats {
+        final LatencyHistogram queueWait = new LatencyHistogram(); // Nanoseconds
+        final LatencyHistogram firstProgress = new LatencyHistogram(); // Ticks
+        final LatencyHistogram duration = new LatencyHistogram(); // Nanoseconds
+        final LatencyHistogram sendDelay = new LatencyHistogram(); // Nanoseconds
+        final LongAdder[] outcomes = new LongAdder[Outcome.values().length];
+        
+        TypeStats() {
+            for (int i = 0; i < outcomes.length; i++) {
+                outcomes[i] = new LongAdder();
+            }
+        }
+    }
+    
+    private final Map<String, TypeStats> types = new ConcurrentHashMap<>();
+    private volatile long since = System.currentTimeMillis(); // Start of the current interval
+    
+    private TypeStats stats(String type) {
+        return types.computeIfAbsent(type, key -> new TypeStats());
+    }
+    
+    /**
+     * From entering the queue to starting
+     */
+    public void recordQueueWait(String type, long nanos) {
+        stats(type).queueWait.record(nanos);
+    }
+    
+    /**
+     * Ticks run until the action first moved the player, changed the
+     * inventory or finished
+     */
+    public void recordFirstProgress(String type, int ticks) {
+        stats(type).firstProgress.record(ticks);
+    }
+    
+    /**
+     * From starting to finishing, suspensions included
+     */
+    public void recordDuration(String type, long nanos) {
+        stats(type).duration.record(nanos);
+    }
+    
+    /**
+     * From finishing to its result being written to the socket
+     */
+    public void recordSendDelay(String type, long nanos) {
+        stats(type).sendDelay.record(nanos);
+    }
+    
+    public void recordOutcome(String type, Outcome outcome) {
+        stats(type).outcomes[outcome.ordinal()].increment();
+    }
+    
+    /**
+     * Everything recorded since startup or the last reset, by action type.
+     * Times are in milliseconds.
+     */
+    public JsonObject toJson(boolean reset) {
+        JsonObject json = new JsonObject();
+        long now = System.currentTimeMillis();
+        json.addProperty("since", since);
+        json.addProperty("until", now);
+        if (reset) {
+            since = now;
+        }
+        
+        JsonObject byType = new JsonObject();
+        for (Map.Entry<String, TypeStats> entry : types.entrySet()) {
+            TypeStats stats = entry.getValue();
+            JsonObject type = new JsonObject();
+            type.addProperty("completed", take(stats.outcomes[Outcome.COMPLETED.ordinal()], reset));
+            type.addProperty("failed", take(stats.outcomes[Outcome.FAILED.ordinal()], reset));
+            type.addProperty("timedOut", take(stats.outcomes[Outcome.TIMED_OUT.ordinal()], reset));
+            type.addProperty("canceled", take(stats.outcomes[Outcome.CANCELED.ordinal()], reset));
+            type.add("queueWaitMs", stats.queueWait.toJson(NANOS_PER_MILLI, reset));
+            type.add("firstProgressTicks", stats.firstProgress.toJson(1, reset));
+            type.add("durationMs", stats.duration.toJson(NANOS_PER_MILLI, reset));
+            type.add("sendDelayMs", stats.sendDelay.toJson(NANOS_PER_MILLI, reset));
+            byType.add(entry.getKey(), type);
+        }
+        json.add("types", byType);
+        return json;
+    }
+    
+    private static long take(LongAdder adder, boolean reset) {
+        return reset ? adder.sumThenReset() : adder.sum();
+    }
+}
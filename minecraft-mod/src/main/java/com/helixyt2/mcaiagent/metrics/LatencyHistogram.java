@@ -0,0 +1,100 @@
+package com.helixyt2.mcaiagent.metrics;
+
+import com.google.gson.JsonObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear histogram of non-negative values, laid out like HdrHistogram:
+ * every power of two is split into 32 linear buckets, so values keep about
+ * 3% precision from 1 up to 2^42 (larger ones land in the top bucket).
+ *
+ * Recording is a few atomic updates and never locks, so any thread can
+ * record while another takes a snapshot.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 41; // 2^42 ns is over an hour
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT;
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String[] QUANTILE_NAMES = {"p50", "p90", "p99", "p999"};
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+    
+    public void record(long value) {
+        long clamped = Math.min(Math.max(value, 0), MAX_VALUE);
+        counts.incrementAndGet(indexOf(clamped));
+        sum.addAndGet(clamped);
+        max.accumulateAndGet(clamped, Math::max);
+    }
+    
+    /**
+     * Values below 64 get a bucket each; above that a bucket is 1/32 of its power of two
+     */
+    private static int indexOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB_COUNT + (int) (value >>> shift) - SUB_COUNT;
+    }
+    
+    /**
+     * Largest value that falls in the bucket
+     */
+    private static long highestIn(int index) {
+        if (index < 2 * SUB_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_COUNT - 1;
+        long mantissa = index % SUB_COUNT + SUB_COUNT;
+        return ((mantissa + 1) << shift) - 1;
+    }
+    
+    /**
+     * Count, mean, percentiles and max, with values divided by scale (1e6
+     * reports nanoseconds as milliseconds). With reset the histogram starts
+     * over; a value recorded meanwhile lands in one interval or the next.
+     */
+    public JsonObject toJson(double scale, boolean reset) {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = reset ? counts.getAndSet(i, 0) : counts.get(i);
+            count += snapshot[i];
+        }
+        long total = reset ? sum.getAndSet(0) : sum.get();
+        long highest = reset ? max.getAndSet(0) : max.get();
+        
+        JsonObject json = new JsonObject();
+        json.addProperty("count", count);
+        if (count == 0) {
+            return json;
+        }
+        json.addProperty("mean", round(total / (double) count / scale));
+        
+        // Quantiles are ascending, so one walk over the buckets finds them all
+        int bucket = 0;
+        long seen = 0;
+        for (int q = 0; q < QUANTILES.length; q++) {
+            long rank = Math.max(1, (long) Math.ceil(QUANTILES[q] * count));
+            while (seen + snapshot[bucket] < rank) {
+                seen += snapshot[bucket];
+                bucket++;
+            }
+            json.addProperty(QUANTILE_NAMES[q], round(Math.min(highestIn(bucket), highest) / scale));
+        }
+        json.addProperty("max", round(highest / scale));
+        return json;
+    }
+    
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
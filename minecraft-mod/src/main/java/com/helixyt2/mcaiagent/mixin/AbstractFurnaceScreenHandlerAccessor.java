@@ -0,0 +1,16 @@
+package com.helixyt2.mcaiagent.mixin;
+
+import net.minecraft.screen.AbstractFurnaceScreenHandler;
+import net.minecraft.screen.PropertyDelegate;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+/**
+ * Exposes the synced furnace properties (burn time, cook progress and totals)
+ * that the screen handler only hands out as ratios.
+ */
+@Mixin(AbstractFurnaceScreenHandler.class)
+public interface AbstractFurnaceScreenHandlerAccessor {
+    @Accessor("propertyDelegate")
+    PropertyDelegate mcaiagent$getPropertyDelegate();
+}
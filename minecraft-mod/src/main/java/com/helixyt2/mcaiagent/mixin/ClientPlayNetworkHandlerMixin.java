@@ -0,0 +1,42 @@
+package com.helixyt2.mcaiagent.mixin;
+
+import com.helixyt2.mcaiagent.MCAIAgentMod;
+import net.minecraft.client.network.ClientPlayNetworkHandler;
+import net.minecraft.network.packet.s2c.play.RecipeBookAddS2CPacket;
+import net.minecraft.network.packet.s2c.play.RecipeBookRemoveS2CPacket;
+import net.minecraft.recipe.RecipeDisplayEntry;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the recipe index in step with the recipe book, the only recipes the
+ * client receives. Injected at the tail, which is only reached once the
+ * handler runs on the client thread.
+ */
+@Mixin(ClientPlayNetworkHandler.class)
+public abstract class ClientPlayNetworkHandlerMixin {
+    @Inject(method = "onRecipeBookAdd", at = @At("TAIL"))
+    private void mcaiagent$onRecipeBookAdd(RecipeBookAddS2CPacket packet, CallbackInfo ci) {
+        MCAIAgentMod mod = MCAIAgentMod.getInstance();
+        if (mod == null) return;
+        
+        List<RecipeDisplayEntry> added = new ArrayList<>(packet.entries().size());
+        for (RecipeBookAddS2CPacket.Entry entry : packet.entries()) {
+            added.add(entry.contents());
+        }
+        mod.getRecipeIndex().onRecipesAdded(added, packet.replace());
+    }
+    
+    @Inject(method = "onRecipeBookRemove", at = @At("TAIL"))
+    private void mcaiagent$onRecipeBookRemove(RecipeBookRemoveS2CPacket packet, CallbackInfo ci) {
+        MCAIAgentMod mod = MCAIAgentMod.getInstance();
+        if (mod != null) {
+            mod.getRecipeIndex().onRecipesRemoved(packet.recipes());
+        }
+    }
+}
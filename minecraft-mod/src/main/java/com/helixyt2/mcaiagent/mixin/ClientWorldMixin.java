@@ -0,0 +1,27 @@
+package com.helixyt2.mcaiagent.mixin;
+
+import com.helixyt2.mcaiagent.MCAIAgentMod;
+import net.minecraft.block.BlockState;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.util.math.BlockPos;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Forwards server block updates to the mod's world indexes.
+ */
+@Mixin(ClientWorld.class)
+public abstract class ClientWorldMixin {
+    @Inject(method = "handleBlockUpdate", at = @At("TAIL"))
+    private void mcaiagent$onBlockUpdate(BlockPos pos, BlockState state, int flags, CallbackInfo ci) {
+        MCAIAgentMod mod = MCAIAgentMod.getInstance();
+        if (mod == null) return;
+        
+        // Read back the applied state; updates matching a pending prediction are deferred
+        BlockState current = ((ClientWorld) (Object) this).getBlockState(pos);
+        mod.getBlockIndex().onBlockUpdate(pos, current);
+        mod.getPathfinder().getCache().onBlockUpdate(pos);
+    }
+}
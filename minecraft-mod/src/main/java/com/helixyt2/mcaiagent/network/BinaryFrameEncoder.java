@@ -0,0 +1,203 @@
+package com.helixyt2.mcaiagent.network;
+
+import com.google.gson.JsonObject;
+import com.helixyt2.mcaiagent.state.StateSnapshot;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary encoding for mod → backend messages.
+ *
+ * Every frame starts with a fixed 4 byte header:
+ *   [0] magic (0xA1), [1] protocol version, [2] message type, [3] flags
+ * followed by the message body. Integers are unsigned LEB128 varints,
+ * strings are a varint byte length followed by UTF-8 bytes, doubles and
+ * floats are big-endian IEEE 754. The instance id is not repeated per
+ * frame since the connection is already registered.
+ *
+ * Not thread-safe: the buffer is reused between frames.
+ */
+public class BinaryFrameEncoder {
+    public static final String ENCODING_NAME = "binary";
+    public static final int MAGIC = 0xA1;
+    public static final int VERSION = 1;
+    
+    // Message types
+    public static final int TYPE_STATE_UPDATE = 1;
+    public static final int TYPE_ACTION_COMPLETE = 2;
+    public static final int TYPE_ACTION_FAILED = 3;
+    public static final int TYPE_LOG = 4;
+    
+    // Header flags
+    public static final int FLAG_KEYFRAME = 1;
+    public static final int FLAG_DELTA = 1 << 1;
+    
+    private static final byte[] EMPTY_ITEM_NAME = "minecraft:air".getBytes(StandardCharsets.UTF_8);
+    
+    private byte[] buffer = new byte[1024];
+    private int length = 0;
+    
+    /**
+     * Encode a state_update body, either the full state or a delta against the baseline.
+     * Body: varint seq, varint field mask (StateSnapshot.FIELD_*), then each present field.
+     * Inventory entries hold raw item id 0 / "minecraft:air" for emptied slots.
+     */
+    public ByteBuffer encodeStateUpdate(StateSnapshot state, StateSnapshot baseline, long seq) {
+        int mask = state.diff(baseline);
+        int flags = 0;
+        if (seq > 0) {
+            flags |= FLAG_DELTA;
+            if (baseline == null) {
+                flags |= FLAG_KEYFRAME;
+            }
+        }
+        
+        begin(TYPE_STATE_UPDATE, flags);
+        writeVarLong(seq);
+        writeVarInt(mask);
+        
+        if ((mask & StateSnapshot.FIELD_POSITION) != 0) {
+            writeDouble(state.getX());
+            writeDouble(state.getY());
+            writeDouble(state.getZ());
+        }
+        if ((mask & StateSnapshot.FIELD_HEALTH) != 0) {
+            writeFloat(state.getHealth());
+        }
+        if ((mask & StateSnapshot.FIELD_HUNGER) != 0) {
+            writeVarInt(state.getHunger());
+        }
+        if ((mask & StateSnapshot.FIELD_SATURATION) != 0) {
+            writeFloat(state.getSaturation());
+        }
+        if ((mask & StateSnapshot.FIELD_DIMENSION) != 0) {
+            writeString(state.getDimension().toString());
+        }
+        if ((mask & StateSnapshot.FIELD_GAME_MODE) != 0) {
+            writeString(state.getGameMode().getName());
+        }
+        if ((mask & StateSnapshot.FIELD_INVENTORY) != 0) {
+            writeInventory(state, baseline);
+        }
+        
+        return finish();
+    }
+    
+    private void writeInventory(StateSnapshot state, StateSnapshot baseline) {
+        int entries = 0;
+        for (int i = 0; i < state.getSlotCount(); i++) {
+            if (includeSlot(state, baseline, i)) entries++;
+        }
+        
+        writeVarInt(entries);
+        for (int i = 0; i < state.getSlotCount(); i++) {
+            if (!includeSlot(state, baseline, i)) continue;
+            int itemId = state.getItemId(i);
+            writeVarInt(i);
+            writeBytes(itemId == StateSnapshot.EMPTY_ITEM ? EMPTY_ITEM_NAME : StateSnapshot.itemNameBytes(itemId));
+            writeVarInt(state.getCount(i));
+        }
+    }
+    
+    private static boolean includeSlot(StateSnapshot state, StateSnapshot baseline, int slot) {
+        if (baseline == null) {
+            return state.getItemId(slot) != StateSnapshot.EMPTY_ITEM;
+        }
+        return !state.slotEquals(baseline, slot);
+    }
+    
+    /**
+     * Body: string actionId, string result (JSON text, the result is free-form)
+     */
+    public ByteBuffer encodeActionComplete(String actionId, JsonObject result) {
+        begin(TYPE_ACTION_COMPLETE, 0);
+        writeString(actionId);
+        writeString(result.toString());
+        return finish();
+    }
+    
+    /**
+     * Body: string actionId, string error
+     */
+    public ByteBuffer encodeActionFailed(String actionId, String error) {
+        begin(TYPE_ACTION_FAILED, 0);
+        writeString(actionId);
+        writeString(error != null ? error : "");
+        return finish();
+    }
+    
+    /**
+     * Body: string message
+     */
+    public ByteBuffer encodeLog(String message) {
+        begin(TYPE_LOG, 0);
+        writeString(message);
+        return finish();
+    }
+    
+    private void begin(int type, int flags) {
+        length = 0;
+        ensureCapacity(4);
+        buffer[length++] = (byte) MAGIC;
+        buffer[length++] = (byte) VERSION;
+        buffer[length++] = (byte) type;
+        buffer[length++] = (byte) flags;
+    }
+    
+    private ByteBuffer finish() {
+        return ByteBuffer.wrap(buffer, 0, length);
+    }
+    
+    private void writeVarInt(int value) {
+        writeVarLong(value & 0xFFFFFFFFL);
+    }
+    
+    private void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[length++] = (byte) value;
+    }
+    
+    private void writeDouble(double value) {
+        writeLong(Double.doubleToRawLongBits(value));
+    }
+    
+    private void writeFloat(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        ensureCapacity(4);
+        buffer[length++] = (byte) (bits >>> 24);
+        buffer[length++] = (byte) (bits >>> 16);
+        buffer[length++] = (byte) (bits >>> 8);
+        buffer[length++] = (byte) bits;
+    }
+    
+    private void writeLong(long bits) {
+        ensureCapacity(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[length++] = (byte) (bits >>> shift);
+        }
+    }
+    
+    private void writeString(String value) {
+        writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private void writeBytes(byte[] bytes) {
+        writeVarInt(bytes.length);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+    
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            byte[] grown = new byte[Math.max(buffer.length * 2, length + extra)];
+            System.arraycopy(buffer, 0, grown, 0, length);
+            buffer = grown;
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.helixyt2.mcaiagent.network;
+
+import com.google.gson.JsonObject;
+import com.helixyt2.mcaiagent.MCAIAgentMod;
+import com.helixyt2.mcaiagent.WebSocketClient;
+import com.helixyt2.mcaiagent.state.StateJsonEncoder;
+import com.helixyt2.mcaiagent.state.StateSnapshot;
+import net.minecraft.client.MinecraftClient;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Serializes and sends outbound messages on a dedicated thread.
+ *
+ * The client thread is the single producer of a bounded ring buffer of
+ * preallocated entries; state snapshots are copied into the entry, so
+ * enqueueing a state update does not allocate. The sender thread drains
+ * the ring, keeps the delta baseline, encodes (JSON or binary) and writes
+ * to the socket.
+ *
+ * While the socket is backed up, state snapshots pile up in the ring and
+ * all but the newest are skipped. State updates and logs are dropped when
+ * the ring is full; action results never are: they spill into an
+ * unbounded overflow queue, which is also used by other threads.
+ *
+ * Results can carry a callback that runs on the sender thread once the
+ * frame is written, used to time how long results take to go out.
+ */
+public class OutboundSender implements Runnable {
+    private static final int CAPACITY = 256; // Must be a power of two
+    private static final int MASK = CAPACITY - 1;
+    private static final long BACKPRESSURE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    
+    private enum Kind {
+        STATE,
+        ACTION_COMPLETE,
+        ACTION_FAILED,
+        LOG,
+        REPLY // Query replies and batch updates, always JSON text frames
+    }
+    
+    private static class Entry {
+        Kind kind;
+        StateSnapshot state; // Only preallocated for ring entries
+        boolean keyframe;
+        boolean delta;
+        String actionId;
+        JsonObject result;
+        String text;
+        Runnable onSent;
+        
+        void clearRefs() {
+            actionId = null;
+            result = null;
+            text = null;
+            onSent = null;
+        }
+    }
+    
+    private final WebSocketClient connection;
+    private final Entry[] ring = new Entry[CAPACITY];
+    private volatile long head = 0; // Next slot the producer writes
+    private volatile long tail = 0; // Next slot the sender reads
+    private final Queue<Entry> overflow = new ConcurrentLinkedQueue<>();
+    
+    private final Thread thread;
+    private volatile boolean running = true;
+    private boolean keyframeCarry = false; // Keyframe request from a dropped snapshot
+    
+    // Owned by the sender thread
+    private final BinaryFrameEncoder binaryEncoder = new BinaryFrameEncoder();
+    private final StateSnapshot lastSentState = new StateSnapshot();
+    private long sequence = 0;
+    private boolean pendingKeyframe = false; // Carried over from skipped snapshots
+    
+    public OutboundSender(WebSocketClient connection) {
+        this.connection = connection;
+        for (int i = 0; i < CAPACITY; i++) {
+            ring[i] = new Entry();
+            ring[i].state = new StateSnapshot();
+        }
+        this.thread = new Thread(this, "MCAIAgent-Sender");
+        this.thread.setDaemon(true);
+    }
+    
+    public void start() {
+        thread.start();
+    }
+    
+    public void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+    
+    /**
+     * Queue a copy of the snapshot. Must be called from the client thread.
+     *
+     * @param keyframe send the full state even in delta mode
+     * @param delta    whether delta mode is on
+     */
+    public void enqueueState(StateSnapshot state, boolean keyframe, boolean delta) {
+        Entry entry = claim();
+        if (entry == null) {
+            // Superseded by the next snapshot anyway, but keep a pending keyframe
+            keyframeCarry |= keyframe;
+            return;
+        }
+        entry.kind = Kind.STATE;
+        entry.state.copyFrom(state);
+        entry.keyframe = keyframe || keyframeCarry;
+        entry.delta = delta;
+        keyframeCarry = false;
+        publish();
+    }
+    
+    public void enqueueActionComplete(String actionId, JsonObject result, Runnable onSent) {
+        enqueueResult(Kind.ACTION_COMPLETE, actionId, result, null, onSent);
+    }
+    
+    public void enqueueActionFailed(String actionId, String error, Runnable onSent) {
+        enqueueResult(Kind.ACTION_FAILED, actionId, null, error, onSent);
+    }
+    
+    /**
+     * Queue a reply to a backend query or a batch update. The message gets the
+     * instance id and is sent as JSON text even when binary frames are negotiated.
+     */
+    public void enqueueReply(JsonObject message, Runnable onSent) {
+        enqueueResult(Kind.REPLY, null, message, null, onSent);
+    }
+    
+    public void enqueueLog(String message) {
+        if (!isProducerThread()) {
+            offerOverflow(Kind.LOG, null, null, message, null);
+            return;
+        }
+        Entry entry = claim();
+        if (entry == null) return; // Logs are best effort
+        fill(entry, Kind.LOG, null, null, message, null);
+        publish();
+    }
+    
+    private void enqueueResult(Kind kind, String actionId, JsonObject result, String error, Runnable onSent) {
+        // Keep results in order: once anything spilled, keep spilling until it drained
+        Entry entry = isProducerThread() && overflow.isEmpty() ? claim() : null;
+        if (entry == null) {
+            offerOverflow(kind, actionId, result, error, onSent);
+            return;
+        }
+        fill(entry, kind, actionId, result, error, onSent);
+        publish();
+    }
+    
+    private void offerOverflow(Kind kind, String actionId, JsonObject result, String text, Runnable onSent) {
+        Entry entry = new Entry();
+        fill(entry, kind, actionId, result, text, onSent);
+        overflow.add(entry);
+        LockSupport.unpark(thread);
+    }
+    
+    private static void fill(Entry entry, Kind kind, String actionId, JsonObject result, String text, Runnable onSent) {
+        entry.kind = kind;
+        entry.actionId = actionId;
+        entry.result = result;
+        entry.text = text;
+        entry.onSent = onSent;
+    }
+    
+    private static boolean isProducerThread() {
+        return MinecraftClient.getInstance().isOnThread();
+    }
+    
+    private Entry claim() {
+        long h = head;
+        if (h - tail >= CAPACITY) {
+            return null;
+        }
+        return ring[(int) (h & MASK)];
+    }
+    
+    private void publish() {
+        head = head + 1;
+        LockSupport.unpark(thread);
+    }
+    
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                if (connection.isBackedUp()) {
+                    // Let snapshots accumulate so the stale ones can be coalesced
+                    LockSupport.parkNanos(BACKPRESSURE_WAIT_NANOS);
+                    continue;
+                }
+                if (!drain()) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            } catch (Exception e) {
+                MCAIAgentMod.LOGGER.error("Error sending message", e);
+            }
+        }
+    }
+    
+    /**
+     * Send everything currently queued. Returns false if there was nothing to send.
+     */
+    private boolean drain() {
+        long t = tail;
+        long h = head;
+        boolean sent = false;
+        
+        if (t != h) {
+            // Only the newest state snapshot of this batch is worth sending
+            long lastState = -1;
+            for (long i = t; i < h; i++) {
+                if (ring[(int) (i & MASK)].kind == Kind.STATE) {
+                    lastState = i;
+                }
+            }
+            
+            for (long i = t; i < h; i++) {
+                Entry entry = ring[(int) (i & MASK)];
+                if (entry.kind == Kind.STATE) {
+                    if (i == lastState) {
+                        transmitState(entry);
+                    } else {
+                        pendingKeyframe |= entry.keyframe;
+                    }
+                } else {
+                    send(entry);
+                }
+                entry.clearRefs();
+                tail = i + 1; // Hand the slot back to the producer
+            }
+            sent = true;
+        }
+        
+        Entry spilled;
+        while ((spilled = overflow.poll()) != null) {
+            send(spilled);
+            sent = true;
+        }
+        return sent;
+    }
+    
+    private void transmitState(Entry entry) {
+        if (!connection.isRegistered()) return;
+        
+        StateSnapshot baseline = null;
+        long seq = 0;
+        if (entry.delta) {
+            boolean keyframe = entry.keyframe || pendingKeyframe
+                || !lastSentState.isValid()
+                || lastSentState.getSlotCount() != entry.state.getSlotCount();
+            if (!keyframe) {
+                if (entry.state.diff(lastSentState) == 0) {
+                    return; // Nothing changed since the last update
+                }
+                baseline = lastSentState;
+            }
+            seq = ++sequence;
+        }
+        pendingKeyframe = false;
+        
+        if (connection.isBinaryFrames()) {
+            connection.send(binaryEncoder.encodeStateUpdate(entry.state, baseline, seq));
+        } else {
+            JsonObject message = new JsonObject();
+            message.addProperty("type", "state_update");
+            message.addProperty("instanceId", connection.getInstanceId());
+            message.add("data", StateJsonEncoder.encode(entry.state, baseline, seq));
+            connection.send(message.toString());
+        }
+        lastSentState.copyFrom(entry.state);
+    }
+    
+    private void send(Entry entry) {
+        if (transmit(entry) && entry.onSent != null) {
+            entry.onSent.run();
+        }
+    }
+    
+    /**
+     * Write the entry to the socket. Returns false if it was not sent.
+     */
+    private boolean transmit(Entry entry) {
+        if (!connection.isRegistered()) return false;
+        
+        boolean binary = connection.isBinaryFrames();
+        JsonObject message = new JsonObject();
+        switch (entry.kind) {
+            case ACTION_COMPLETE:
+                if (binary) {
+                    connection.send(binaryEncoder.encodeActionComplete(entry.actionId, entry.result));
+                    return true;
+                }
+                message.addProperty("type", "action_complete");
+                message.addProperty("instanceId", connection.getInstanceId());
+                message.addProperty("actionId", entry.actionId);
+                message.add("result", entry.result);
+                break;
+                
+            case ACTION_FAILED:
+                if (binary) {
+                    connection.send(binaryEncoder.encodeActionFailed(entry.actionId, entry.text));
+                    return true;
+                }
+                message.addProperty("type", "action_failed");
+                message.addProperty("instanceId", connection.getInstanceId());
+                message.addProperty("actionId", entry.actionId);
+                message.addProperty("error", entry.text);
+                break;
+                
+            case LOG:
+                if (binary) {
+                    connection.send(binaryEncoder.encodeLog(entry.text));
+                    return true;
+                }
+                message.addProperty("type", "log");
+                message.addProperty("instanceId", connection.getInstanceId());
+                message.addProperty("message", entry.text);
+                break;
+                
+            case REPLY:
+                message = entry.result;
+                message.addProperty("instanceId", connection.getInstanceId());
+                break;
+                
+            default:
+                return false;
+        }
+        connection.send(message.toString());
+        return true;
+    }
+}
@@ -0,0 +1,238 @@
+package com.helixyt2.mcaiagent.pathing;
+
+import it.unimi.dsi.fastutil.longs.Long2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Reference2ByteOpenHashMap;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.registry.tag.BlockTags;
+import net.minecraft.registry.tag.FluidTags;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.util.shape.VoxelShape;
+import net.minecraft.world.EmptyBlockView;
+
+/**
+ * A* over walkable feet positions in a {@link WorldSnapshot}.
+ *
+ * Nodes are BlockPos.asLong values; the open set is a primitive binary heap
+ * and the closed set, scores and parents are primitive hash maps, all reused
+ * between searches. Moves are walking (with diagonals), stepping up one block
+ * and dropping up to three. Not thread-safe: owned by the pathfinder worker.
+ */
+final class AStarSearch {
+    private static final int MAX_FALL = 3;
+    private static final double COST_STRAIGHT = 1.0;
+    private static final double COST_DIAGONAL = Math.sqrt(2);
+    private static final double COST_JUMP = 0.5;
+    private static final double COST_FALL_PER_BLOCK = 0.25;
+    private static final double COST_WATER = 1.0; // Extra per move through water
+    
+    // Block kinds, cached per state
+    private static final byte PASSABLE = 0;
+    private static final byte SOLID = 1;   // Can stand on it
+    private static final byte BLOCKED = 2; // Not passable, not standable (tall, unknown, dangerous)
+    private static final byte WATER = 3;
+    
+    private static final int[][] DIRECTIONS = {
+        {1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}
+    };
+    
+    private final LongMinHeap open = new LongMinHeap();
+    private final LongOpenHashSet closed = new LongOpenHashSet();
+    private final Long2DoubleOpenHashMap gScore = new Long2DoubleOpenHashMap();
+    private final Long2LongOpenHashMap parent = new Long2LongOpenHashMap();
+    private final Reference2ByteOpenHashMap<BlockState> kinds = new Reference2ByteOpenHashMap<>();
+    
+    private WorldSnapshot world;
+    
+    AStarSearch() {
+        gScore.defaultReturnValue(Double.POSITIVE_INFINITY);
+    }
+    
+    /**
+     * Search from start towards goal, expanding at most maxNodes nodes or until
+     * the deadline (System.nanoTime). Returns null if start is not standable.
+     */
+    Path search(WorldSnapshot snapshot, BlockPos start, BlockPos goal, int maxNodes, long deadlineNanos) {
+        this.world = snapshot;
+        open.clear();
+        closed.clear();
+        gScore.clear();
+        parent.clear();
+        
+        try {
+            return run(start, goal, maxNodes, deadlineNanos);
+        } finally {
+            this.world = null;
+        }
+    }
+    
+    private Path run(BlockPos start, BlockPos goal, int maxNodes, long deadlineNanos) {
+        long startNode = start.asLong();
+        if (!canStand(start.getX(), start.getY(), start.getZ())) {
+            return null;
+        }
+        
+        // A goal inside a block or in mid-air is reached by getting next to it
+        boolean exactGoal = canStand(goal.getX(), goal.getY(), goal.getZ());
+        
+        gScore.put(startNode, 0);
+        open.push(startNode, heuristic(start.getX(), start.getY(), start.getZ(), goal));
+        long best = startNode;
+        double bestHeuristic = heuristic(start.getX(), start.getY(), start.getZ(), goal);
+        
+        int expanded = 0;
+        while (!open.isEmpty()) {
+            long node = open.pop();
+            if (!closed.add(node)) continue; // Stale heap entry
+            
+            int x = BlockPos.unpackLongX(node);
+            int y = BlockPos.unpackLongY(node);
+            int z = BlockPos.unpackLongZ(node);
+            if (isGoal(x, y, z, goal, exactGoal)) {
+                return buildPath(node, goal, true);
+            }
+            
+            double h = heuristic(x, y, z, goal);
+            if (h < bestHeuristic) {
+                bestHeuristic = h;
+                best = node;
+            }
+            
+            if (++expanded >= maxNodes || ((expanded & 255) == 0 && System.nanoTime() > deadlineNanos)) {
+                break;
+            }
+            expand(node, x, y, z, goal);
+        }
+        
+        return buildPath(best, goal, false);
+    }
+    
+    private void expand(long node, int x, int y, int z, BlockPos goal) {
+        double base = gScore.get(node);
+        boolean inWater = kindAt(x, y, z) == WATER;
+        
+        for (int[] direction : DIRECTIONS) {
+            int dx = direction[0];
+            int dz = direction[1];
+            int nx = x + dx;
+            int nz = z + dz;
+            boolean diagonal = dx != 0 && dz != 0;
+            double step = (diagonal ? COST_DIAGONAL : COST_STRAIGHT) + (inWater ? COST_WATER : 0);
+            
+            // Diagonals must not clip the corners
+            if (diagonal && (!isOpen(x + dx, y, z) || !isOpen(x, y, z + dz))) continue;
+            
+            if (canStand(nx, y, nz)) {
+                relax(node, nx, y, nz, base + step, goal);
+                continue;
+            }
+            if (diagonal) continue; // Jumps and drops only straight ahead
+            
+            // Step up: the block ahead is standable one higher and there is headroom to jump
+            if (canStand(nx, y + 1, nz) && isPassable(x, y + 2, z)) {
+                relax(node, nx, y + 1, nz, base + step + COST_JUMP, goal);
+                continue;
+            }
+            
+            // Drop: walk off the edge and land within MAX_FALL blocks
+            if (isOpen(nx, y, nz)) {
+                for (int fall = 1; fall <= MAX_FALL; fall++) {
+                    if (canStand(nx, y - fall, nz)) {
+                        relax(node, nx, y - fall, nz, base + step + fall * COST_FALL_PER_BLOCK, goal);
+                        break;
+                    }
+                    if (!isPassable(nx, y - fall, nz)) break;
+                }
+            }
+        }
+    }
+    
+    private void relax(long from, int x, int y, int z, double cost, BlockPos goal) {
+        long node = BlockPos.asLong(x, y, z);
+        if (closed.contains(node) || cost >= gScore.get(node)) return;
+        
+        gScore.put(node, cost);
+        parent.put(node, from);
+        open.push(node, cost + heuristic(x, y, z, goal));
+    }
+    
+    private Path buildPath(long end, BlockPos goal, boolean reachesGoal) {
+        LongArrayList nodes = new LongArrayList();
+        long node = end;
+        nodes.add(node);
+        while (parent.containsKey(node)) {
+            node = parent.get(node);
+            nodes.add(node);
+        }
+        
+        long[] ordered = new long[nodes.size()];
+        for (int i = 0; i < ordered.length; i++) {
+            ordered[i] = nodes.getLong(ordered.length - 1 - i);
+        }
+        return new Path(ordered, goal, reachesGoal);
+    }
+    
+    private static boolean isGoal(int x, int y, int z, BlockPos goal, boolean exactGoal) {
+        if (exactGoal) {
+            return x == goal.getX() && y == goal.getY() && z == goal.getZ();
+        }
+        return Math.abs(x - goal.getX()) <= 1 && Math.abs(z - goal.getZ()) <= 1 && Math.abs(y - goal.getY()) <= 1;
+    }
+    
+    // Octile distance on the ground plus a small vertical term, kept below the real move costs
+    private static double heuristic(int x, int y, int z, BlockPos goal) {
+        int dx = Math.abs(x - goal.getX());
+        int dz = Math.abs(z - goal.getZ());
+        int dy = Math.abs(y - goal.getY());
+        return Math.max(dx, dz) + (COST_DIAGONAL - 1) * Math.min(dx, dz) + dy * COST_FALL_PER_BLOCK;
+    }
+    
+    private boolean canStand(int x, int y, int z) {
+        byte feet = kindAt(x, y, z);
+        if (feet != PASSABLE && feet != WATER) return false;
+        if (!isPassable(x, y + 1, z)) return false;
+        return feet == WATER || kindAt(x, y - 1, z) == SOLID;
+    }
+    
+    // Room for the player's whole body
+    private boolean isOpen(int x, int y, int z) {
+        return isPassable(x, y, z) && isPassable(x, y + 1, z);
+    }
+    
+    private boolean isPassable(int x, int y, int z) {
+        byte kind = kindAt(x, y, z);
+        return kind == PASSABLE || kind == WATER;
+    }
+    
+    private byte kindAt(int x, int y, int z) {
+        BlockState state = world.getBlockState(x, y, z);
+        if (state == null) return BLOCKED; // Not loaded
+        
+        byte kind = kinds.getOrDefault(state, (byte) -1);
+        if (kind < 0) {
+            kind = classify(state);
+            kinds.put(state, kind);
+        }
+        return kind;
+    }
+    
+    private static byte classify(BlockState state) {
+        if (state.getFluidState().isIn(FluidTags.LAVA) || state.isIn(BlockTags.FIRE)
+            || state.isOf(Blocks.CACTUS) || state.isOf(Blocks.MAGMA_BLOCK) || state.isOf(Blocks.SWEET_BERRY_BUSH)
+            || state.isOf(Blocks.POWDER_SNOW) || state.isOf(Blocks.COBWEB)) {
+            return BLOCKED;
+        }
+        
+        // Collision shapes of nearly all states do not depend on the world
+        VoxelShape shape = state.getCollisionShape(EmptyBlockView.INSTANCE, BlockPos.ORIGIN);
+        if (shape.isEmpty()) {
+            return state.getFluidState().isIn(FluidTags.WATER) ? WATER : PASSABLE;
+        }
+        // Fences and walls cannot be stepped onto
+        return shape.getMax(Direction.Axis.Y) > 1.0 ? BLOCKED : SOLID;
+    }
+}
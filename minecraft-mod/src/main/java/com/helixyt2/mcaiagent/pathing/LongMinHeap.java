@@ -0,0 +1,68 @@
+package com.helixyt2.mcaiagent.pathing;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of long values keyed by a double, stored in parallel
+ * primitive arrays. Used as the A* open set; stale entries are left in place
+ * and skipped by the caller instead of being decreased.
+ */
+final class LongMinHeap {
+    private long[] values = new long[1024];
+    private double[] keys = new double[1024];
+    private int size = 0;
+    
+    void push(long value, double key) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+        
+        // Sift up
+        int index = size++;
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (keys[parent] <= key) break;
+            values[index] = values[parent];
+            keys[index] = keys[parent];
+            index = parent;
+        }
+        values[index] = value;
+        keys[index] = key;
+    }
+    
+    /**
+     * Remove and return the value with the smallest key
+     */
+    long pop() {
+        long top = values[0];
+        size--;
+        if (size > 0) {
+            long value = values[size];
+            double key = keys[size];
+            
+            // Sift down
+            int index = 0;
+            int half = size >>> 1;
+            while (index < half) {
+                int child = 2 * index + 1;
+                if (child + 1 < size && keys[child + 1] < keys[child]) child++;
+                if (key <= keys[child]) break;
+                values[index] = values[child];
+                keys[index] = keys[child];
+                index = child;
+            }
+            values[index] = value;
+            keys[index] = key;
+        }
+        return top;
+    }
+    
+    boolean isEmpty() {
+        return size == 0;
+    }
+    
+    void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,252 @@
+package com.helixyt2.mcaiagent.pathing;
+
+import com.helixyt2.mcaiagent.MCAIAgentMod;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ClientPlayerEntity;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Drives the native pathfinder along a route of one or more waypoints:
+ * requests a path, follows it, and searches again from wherever the player
+ * ends up when a path was only partial or the player got stuck.
+ *
+ * While a segment is walked, the next one is already searched from the
+ * segment's end on the worker and appended to the path being followed, so
+ * the player does not stop at waypoints.
+ */
+public class Navigator {
+    private static final int MAX_REPLANS = 16;
+    
+    public enum Status {
+        IDLE,
+        SEARCHING,
+        MOVING,
+        ARRIVED,
+        FAILED
+    }
+    
+    private final Pathfinder pathfinder;
+    private final PathFollower follower = new PathFollower();
+    private CompletableFuture<Path> pending;
+    private CompletableFuture<Path> nextPending; // Next segment, searched ahead
+    private Path current;
+    private final List<BlockPos> waypoints = new ArrayList<>();
+    private int waypointIndex; // Waypoint being walked to
+    private final IntArrayList joins = new IntArrayList(); // Node index of each joined waypoint not yet passed
+    private Status status = Status.IDLE;
+    private int replans;
+    
+    public Navigator(Pathfinder pathfinder) {
+        this.pathfinder = pathfinder;
+    }
+    
+    public void goTo(MinecraftClient client, BlockPos goal) {
+        followRoute(client, List.of(goal));
+    }
+    
+    /**
+     * Visit the waypoints in order
+     */
+    public void followRoute(MinecraftClient client, List<BlockPos> route) {
+        stop(client);
+        waypoints.clear();
+        for (BlockPos waypoint : route) {
+            waypoints.add(waypoint.toImmutable());
+        }
+        this.waypointIndex = 0;
+        this.joins.clear();
+        this.replans = 0;
+        search(client, true);
+    }
+    
+    private BlockPos goal() {
+        return waypoints.get(waypointIndex);
+    }
+    
+    private void search(MinecraftClient client, boolean useCache) {
+        if (client.world == null || client.player == null) {
+            status = Status.FAILED;
+            return;
+        }
+        pending = pathfinder.findPath(client.world, client.player.getBlockPos(), goal(), useCache);
+        status = Status.SEARCHING;
+    }
+    
+    /**
+     * Advance on the client tick. ARRIVED and FAILED are returned once, after
+     * which the navigator is idle again.
+     */
+    public Status tick(MinecraftClient client) {
+        ClientPlayerEntity player = client.player;
+        if (player == null) return status;
+        
+        switch (status) {
+            case SEARCHING:
+                if (pending.isDone()) {
+                    onSearchDone(client, result(pending));
+                }
+                break;
+                
+            case MOVING:
+                joinNextSegment(client);
+                PathFollower.Status moved = follower.tick(player, client.options);
+                passJoins();
+                if (moved == PathFollower.Status.FINISHED && current.reachesGoal()) {
+                    segmentDone(client);
+                } else if (moved != PathFollower.Status.MOVING) {
+                    replan(client, moved == PathFollower.Status.STUCK);
+                }
+                break;
+                
+            default:
+                break;
+        }
+        
+        Status result = status;
+        if (result == Status.ARRIVED || result == Status.FAILED) {
+            status = Status.IDLE;
+        }
+        return result;
+    }
+    
+    private static Path result(CompletableFuture<Path> future) {
+        return future.exceptionally(e -> {
+            MCAIAgentMod.LOGGER.error("Path search failed", e);
+            return null;
+        }).join();
+    }
+    
+    private void onSearchDone(MinecraftClient client, Path path) {
+        pending = null;
+        if (path == null) {
+            status = Status.FAILED;
+        } else if (path.length() < 2) {
+            // Already standing at the goal, or no way to get any closer
+            if (path.reachesGoal()) {
+                segmentDone(client);
+            } else {
+                status = Status.FAILED;
+            }
+        } else {
+            current = path;
+            follower.start(path);
+            status = Status.MOVING;
+            searchAhead(client);
+        }
+    }
+    
+    /**
+     * Start searching the segment after the last one joined from where it
+     * ends, if it ends at its waypoint
+     */
+    private void searchAhead(MinecraftClient client) {
+        int next = waypointIndex + joins.size() + 1;
+        if (nextPending != null || !current.reachesGoal() || next >= waypoints.size()) return;
+        
+        BlockPos end = BlockPos.fromLong(current.getLast());
+        nextPending = pathfinder.findPath(client.world, end, waypoints.get(next));
+    }
+    
+    /**
+     * Append the searched-ahead segment to the path being walked, so the
+     * follower runs straight through the waypoint. The waypoint only counts
+     * as reached once the follower passes its node.
+     */
+    private void joinNextSegment(MinecraftClient client) {
+        if (nextPending == null || !nextPending.isDone()) return;
+        
+        Path next = result(nextPending);
+        nextPending = null;
+        if (next == null || next.length() < 2 || next.getNode(0) != current.getLast()) {
+            return; // Searched again once the waypoint is reached
+        }
+        
+        joins.add(current.length() - 1);
+        current = current.concat(next);
+        follower.continueWith(current);
+        searchAhead(client);
+    }
+    
+    private void passJoins() {
+        while (!joins.isEmpty() && follower.getIndex() > joins.getInt(0)) {
+            joins.removeInt(0);
+            waypointIndex++;
+            replans = 0;
+        }
+    }
+    
+    private void segmentDone(MinecraftClient client) {
+        if (waypointIndex + 1 >= waypoints.size()) {
+            status = Status.ARRIVED;
+            return;
+        }
+        
+        waypointIndex++;
+        replans = 0;
+        if (nextPending != null) {
+            // Still being searched; wait for it instead of starting over
+            pending = nextPending;
+            nextPending = null;
+            status = Status.SEARCHING;
+        } else {
+            search(client, true);
+        }
+    }
+    
+    /**
+     * Search again from where the player is. After getting stuck the cached
+     * paths through the node that could not be reached are dropped and the
+     * cache is bypassed, or it would hand back the same path.
+     */
+    private void replan(MinecraftClient client, boolean stuck) {
+        if (nextPending != null) {
+            nextPending.cancel(false);
+            nextPending = null;
+        }
+        joins.clear(); // Segments past the waypoint being walked to are searched again
+        if (++replans > MAX_REPLANS) {
+            MCAIAgentMod.LOGGER.warn("Giving up on path to " + goal() + " after " + MAX_REPLANS + " attempts");
+            status = Status.FAILED;
+            return;
+        }
+        if (stuck) {
+            long node = current.getNode(Math.min(follower.getIndex(), current.length() - 1));
+            pathfinder.getCache().onBlockUpdate(BlockPos.fromLong(node));
+        }
+        search(client, !stuck);
+    }
+    
+    public void stop(MinecraftClient client) {
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+        if (nextPending != null) {
+            nextPending.cancel(false);
+            nextPending = null;
+        }
+        joins.clear();
+        follower.release(client.options);
+        status = Status.IDLE;
+    }
+    
+    public boolean isActive() {
+        return status != Status.IDLE;
+    }
+    
+    public Status getStatus() {
+        return status;
+    }
+    
+    /**
+     * Index of the waypoint currently being walked to
+     */
+    public int getWaypointIndex() {
+        return waypointIndex;
+    }
+}
@@ -0,0 +1,58 @@
+package com.helixyt2.mcaiagent.pathing;
+
+import net.minecraft.util.math.BlockPos;
+
+import java.util.Arrays;
+
+/**
+ * Result of a path search: feet positions (packed with BlockPos.asLong) from
+ * the start to the last node. A path that does not reach the goal ends at
+ * the node that got closest to it.
+ */
+public final class Path {
+    private final long[] nodes;
+    private final BlockPos goal;
+    private final boolean reachesGoal;
+    
+    public Path(long[] nodes, BlockPos goal, boolean reachesGoal) {
+        this.nodes = nodes;
+        this.goal = goal;
+        this.reachesGoal = reachesGoal;
+    }
+    
+    public int length() {
+        return nodes.length;
+    }
+    
+    public long getNode(int index) {
+        return nodes[index];
+    }
+    
+    public long getLast() {
+        return nodes[nodes.length - 1];
+    }
+    
+    public BlockPos getGoal() {
+        return goal;
+    }
+    
+    public boolean reachesGoal() {
+        return reachesGoal;
+    }
+    
+    /**
+     * This path followed by next, which must start at this path's last node
+     */
+    public Path concat(Path next) {
+        long[] joined = Arrays.copyOf(nodes, nodes.length + next.nodes.length - 1);
+        System.arraycopy(next.nodes, 1, joined, nodes.length, next.nodes.length - 1);
+        return new Path(joined, next.goal, next.reachesGoal);
+    }
+    
+    /**
+     * The nodes from index on, as a path towards the given goal
+     */
+    public Path subPath(int from, BlockPos goal, boolean reachesGoal) {
+        return new Path(Arrays.copyOfRange(nodes, from, nodes.length), goal, reachesGoal);
+    }
+}
@@ -0,0 +1,229 @@
+package com.helixyt2.mcaiagent.pathing;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Recently computed paths, keyed by the 8x8x8 regions their start and goal
+ * fall in, so repeated trips between the same places skip the search.
+ *
+ * Every block the search read to allow a cached path's moves (the floor,
+ * feet and head of each node, the corners of diagonals, the headroom of
+ * step-ups and the column of drops) is indexed back to the path, and so is
+ * every chunk it crosses; a block update on one of them,
+ * or a chunk being (re)loaded under it, drops just the affected paths.
+ * Least recently used paths are evicted past CAPACITY. Client thread only.
+ */
+public class PathCache {
+    private static final int REGION_SHIFT = 3; // 8 block regions
+    private static final int CAPACITY = 64;
+    private static final int REJOIN_DISTANCE = 1; // Blocks from the player to a cached node, same height
+    
+    private record Key(long startRegion, long goalRegion) {
+    }
+    
+    private final LinkedHashMap<Key, Path> paths = new LinkedHashMap<>(16, 0.75f, true);
+    private final Long2ObjectOpenHashMap<ObjectArrayList<Key>> byBlock = new Long2ObjectOpenHashMap<>();
+    private final Long2ObjectOpenHashMap<ObjectArrayList<Key>> byChunk = new Long2ObjectOpenHashMap<>();
+    private ClientWorld world;
+    
+    private long hits = 0;
+    private long misses = 0;
+    private long invalidations = 0;
+    
+    /**
+     * A cached path usable from start towards goal, starting at the cached node
+     * next to the player. It only counts as reaching the goal if it was computed
+     * for exactly this goal; otherwise the rest is searched from its end.
+     */
+    public Path lookup(ClientWorld world, BlockPos start, BlockPos goal) {
+        if (world != this.world) {
+            clear();
+            this.world = world;
+        }
+        
+        Path cached = paths.get(new Key(region(start), region(goal)));
+        int from = cached != null ? rejoinIndex(cached, start) : -1;
+        if (from < 0) {
+            misses++;
+            return null;
+        }
+        
+        hits++;
+        return cached.subPath(from, goal, cached.getGoal().equals(goal));
+    }
+    
+    // Furthest node along the path the player is standing next to
+    private static int rejoinIndex(Path path, BlockPos start) {
+        for (int i = path.length() - 2; i >= 0; i--) {
+            long node = path.getNode(i);
+            if (BlockPos.unpackLongY(node) == start.getY()
+                && Math.abs(BlockPos.unpackLongX(node) - start.getX()) <= REJOIN_DISTANCE
+                && Math.abs(BlockPos.unpackLongZ(node) - start.getZ()) <= REJOIN_DISTANCE) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Remember a path that reached its goal
+     */
+    public void put(ClientWorld world, BlockPos start, Path path) {
+        if (!path.reachesGoal() || path.length() < 2) return;
+        if (world != this.world) {
+            clear();
+            this.world = world;
+        }
+        
+        Key key = new Key(region(start), region(path.getGoal()));
+        Path replaced = paths.put(key, path);
+        if (replaced != null) {
+            unindex(key, replaced);
+        }
+        index(key, path);
+        
+        if (paths.size() > CAPACITY) {
+            Iterator<Map.Entry<Key, Path>> eldest = paths.entrySet().iterator();
+            Map.Entry<Key, Path> evicted = eldest.next();
+            eldest.remove();
+            unindex(evicted.getKey(), evicted.getValue());
+        }
+    }
+    
+    /**
+     * Drop the cached paths that use this block
+     */
+    public void onBlockUpdate(BlockPos pos) {
+        invalidate(byBlock.get(pos.asLong()));
+    }
+    
+    /**
+     * Drop the cached paths crossing a chunk that was just loaded; its blocks
+     * arrive without block updates and may differ from when they were searched
+     */
+    public void onChunkLoad(ChunkPos pos) {
+        invalidate(byChunk.get(pos.toLong()));
+    }
+    
+    private void invalidate(ObjectArrayList<Key> keys) {
+        if (keys == null) return;
+        
+        for (Key key : keys.toArray(new Key[0])) {
+            Path removed = paths.remove(key);
+            if (removed != null) {
+                invalidations++;
+                unindex(key, removed);
+            }
+        }
+    }
+    
+    public void clear() {
+        paths.clear();
+        byBlock.clear();
+        byChunk.clear();
+    }
+    
+    private void index(Key key, Path path) {
+        for (long block : blocksOf(path)) {
+            byBlock.computeIfAbsent(block, k -> new ObjectArrayList<>()).add(key);
+        }
+        for (long chunk : chunksOf(path)) {
+            byChunk.computeIfAbsent(chunk, k -> new ObjectArrayList<>()).add(key);
+        }
+    }
+    
+    private void unindex(Key key, Path path) {
+        for (long block : blocksOf(path)) {
+            remove(byBlock, block, key);
+        }
+        for (long chunk : chunksOf(path)) {
+            remove(byChunk, chunk, key);
+        }
+    }
+    
+    private static void remove(Long2ObjectOpenHashMap<ObjectArrayList<Key>> index, long at, Key key) {
+        ObjectArrayList<Key> keys = index.get(at);
+        if (keys == null) return;
+        keys.remove(key);
+        if (keys.isEmpty()) {
+            index.remove(at);
+        }
+    }
+    
+    // The blocks AStarSearch.expand checks for every node and every move between two
+    private static LongOpenHashSet blocksOf(Path path) {
+        LongOpenHashSet blocks = new LongOpenHashSet(path.length() * 4);
+        for (int i = 0; i < path.length(); i++) {
+            long node = path.getNode(i);
+            blocks.add(BlockPos.add(node, 0, -1, 0));
+            blocks.add(node);
+            blocks.add(BlockPos.add(node, 0, 1, 0));
+            if (i > 0) {
+                addMoveBlocks(blocks, path.getNode(i - 1), node);
+            }
+        }
+        return blocks;
+    }
+    
+    private static void addMoveBlocks(LongOpenHashSet blocks, long from, long to) {
+        int x = BlockPos.unpackLongX(from);
+        int y = BlockPos.unpackLongY(from);
+        int z = BlockPos.unpackLongZ(from);
+        int dx = BlockPos.unpackLongX(to) - x;
+        int dy = BlockPos.unpackLongY(to) - y;
+        int dz = BlockPos.unpackLongZ(to) - z;
+        
+        if (dx != 0 && dz != 0) {
+            // Both corners a diagonal passes, feet and head
+            for (int h = 0; h <= 1; h++) {
+                blocks.add(BlockPos.asLong(x + dx, y + h, z));
+                blocks.add(BlockPos.asLong(x, y + h, z + dz));
+            }
+        } else if (dy > 0) {
+            blocks.add(BlockPos.asLong(x, y + 2, z)); // Headroom for the jump
+        } else if (dy < 0) {
+            // Walking off the edge and the air fallen through above the landing
+            for (int h = 1; h > dy; h--) {
+                blocks.add(BlockPos.asLong(x + dx, y + h, z + dz));
+            }
+        }
+    }
+    
+    private static LongOpenHashSet chunksOf(Path path) {
+        LongOpenHashSet chunks = new LongOpenHashSet();
+        for (int i = 0; i < path.length(); i++) {
+            long node = path.getNode(i);
+            chunks.add(ChunkPos.toLong(BlockPos.unpackLongX(node) >> 4, BlockPos.unpackLongZ(node) >> 4));
+        }
+        return chunks;
+    }
+    
+    private static long region(BlockPos pos) {
+        return BlockPos.asLong(pos.getX() >> REGION_SHIFT, pos.getY() >> REGION_SHIFT, pos.getZ() >> REGION_SHIFT);
+    }
+    
+    public int size() {
+        return paths.size();
+    }
+    
+    public long getHits() {
+        return hits;
+    }
+    
+    public long getMisses() {
+        return misses;
+    }
+    
+    public long getInvalidations() {
+        return invalidations;
+    }
+}
@@ -0,0 +1,93 @@
+package com.helixyt2.mcaiagent.pathing;
+
+import net.minecraft.client.network.ClientPlayerEntity;
+import net.minecraft.client.option.GameOptions;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Walks a finished path on the client tick by steering the player's yaw and
+ * holding the forward and jump keys.
+ */
+public class PathFollower {
+    private static final double REACHED_DISTANCE = 0.35; // Horizontal, from the node center
+    private static final int STUCK_TICKS = 60;
+    
+    public enum Status {
+        MOVING,
+        FINISHED,
+        STUCK
+    }
+    
+    private Path path;
+    private int index;
+    private double closest; // Closest approach to the current node
+    private int ticksWithoutProgress;
+    
+    public void start(Path path) {
+        this.path = path;
+        this.index = 1; // Node 0 is where the player stands
+        this.closest = Double.MAX_VALUE;
+        this.ticksWithoutProgress = 0;
+    }
+    
+    /**
+     * Swap in a longer path that starts with the one being followed, keeping
+     * the current position in it
+     */
+    public void continueWith(Path extended) {
+        this.path = extended;
+    }
+    
+    public Status tick(ClientPlayerEntity player, GameOptions options) {
+        if (path == null) return Status.FINISHED;
+        
+        long node = path.getNode(Math.min(index, path.length() - 1));
+        double targetX = BlockPos.unpackLongX(node) + 0.5;
+        double targetY = BlockPos.unpackLongY(node);
+        double targetZ = BlockPos.unpackLongZ(node) + 0.5;
+        double dx = targetX - player.getX();
+        double dz = targetZ - player.getZ();
+        double distance = Math.sqrt(dx * dx + dz * dz);
+        
+        if (index >= path.length() || (distance < REACHED_DISTANCE && Math.abs(player.getY() - targetY) < 1.0)) {
+            index++;
+            closest = Double.MAX_VALUE;
+            ticksWithoutProgress = 0;
+            if (index >= path.length()) {
+                release(options);
+                path = null;
+                return Status.FINISHED;
+            }
+            return Status.MOVING;
+        }
+        
+        if (distance < closest - 0.01) {
+            closest = distance;
+            ticksWithoutProgress = 0;
+        } else if (++ticksWithoutProgress > STUCK_TICKS) {
+            release(options);
+            return Status.STUCK;
+        }
+        
+        player.setYaw((float) Math.toDegrees(Math.atan2(dz, dx)) - 90);
+        options.forwardKey.setPressed(true);
+        options.jumpKey.setPressed(targetY > player.getY() + 0.5 || player.horizontalCollision || player.isTouchingWater());
+        return Status.MOVING;
+    }
+    
+    /**
+     * Current position in the path, as a node index
+     */
+    public int getIndex() {
+        return index;
+    }
+    
+    public Path getPath() {
+        return path;
+    }
+    
+    public void release(GameOptions options) {
+        options.forwardKey.setPressed(false);
+        options.jumpKey.setPressed(false);
+    }
+}
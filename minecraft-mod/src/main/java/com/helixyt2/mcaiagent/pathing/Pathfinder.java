@@ -0,0 +1,99 @@
+package com.helixyt2.mcaiagent.pathing;
+
+import com.helixyt2.mcaiagent.MCAIAgentMod;
+import com.helixyt2.mcaiagent.TickScheduler;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Native path search, used when Baritone is not installed.
+ *
+ * The world around the start is snapshotted on the client thread as a tick
+ * scheduler task, a chunk column at a time within the tick budget; the A*
+ * search itself runs on a single worker thread, so the client tick never
+ * waits for a search to finish. Completed paths go into a
+ * {@link PathCache} and repeated trips are answered from it.
+ */
+public class Pathfinder {
+    private static final int SNAPSHOT_CHUNK_RADIUS = 4; // Search area around the start
+    private static final int SNAPSHOT_VERTICAL_MARGIN = 24; // Blocks above/below start and goal
+    private static final int MAX_NODES = 200_000;
+    private static final long SEARCH_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+    
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "MCAIAgent-Pathfinder");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AStarSearch search = new AStarSearch(); // Only used on the worker
+    private final PathCache cache = new PathCache(); // Only used on the client thread
+    private final TickScheduler scheduler;
+    
+    public Pathfinder(TickScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+    
+    /**
+     * Search for a path from start to goal. Must be called on the client thread.
+     * Goals beyond the snapshot get a partial path towards them.
+     */
+    public CompletableFuture<Path> findPath(ClientWorld world, BlockPos start, BlockPos goal) {
+        return findPath(world, start, goal, true);
+    }
+    
+    /**
+     * Search for a path, skipping the cache lookup unless useCache is set. The
+     * result still replaces whatever was cached for the same trip.
+     */
+    public CompletableFuture<Path> findPath(ClientWorld world, BlockPos start, BlockPos goal, boolean useCache) {
+        Path cached = useCache ? cache.lookup(world, start, goal) : null;
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        
+        int minY = Math.min(start.getY(), goal.getY()) - SNAPSHOT_VERTICAL_MARGIN;
+        int maxY = Math.max(start.getY(), goal.getY()) + SNAPSHOT_VERTICAL_MARGIN;
+        WorldSnapshot.Capture capture = WorldSnapshot.begin(world, start, SNAPSHOT_CHUNK_RADIUS, minY, maxY);
+        
+        BlockPos from = start.toImmutable();
+        BlockPos to = goal.toImmutable();
+        CompletableFuture<WorldSnapshot> captured = new CompletableFuture<>();
+        CompletableFuture<Path> result = captured.thenApplyAsync(snapshot -> {
+            long began = System.nanoTime();
+            Path path = search.search(snapshot, from, to, MAX_NODES, began + SEARCH_BUDGET_NANOS);
+            MCAIAgentMod.LOGGER.debug("Path search " + from + " -> " + to + " took "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - began) + "ms");
+            return path;
+        }, worker).thenApplyAsync(path -> {
+            // Back on the client thread, which owns the cache
+            if (path != null) {
+                cache.put(world, from, path);
+            }
+            return path;
+        }, MinecraftClient.getInstance());
+        
+        scheduler.submit(budget -> {
+            if (result.isCancelled()) {
+                return true; // Nobody is waiting for this path any more
+            }
+            do {
+                if (capture.step()) {
+                    captured.complete(capture.finish());
+                    return true;
+                }
+            } while (budget.hasTime());
+            return false;
+        });
+        return result;
+    }
+    
+    public PathCache getCache() {
+        return cache;
+    }
+}
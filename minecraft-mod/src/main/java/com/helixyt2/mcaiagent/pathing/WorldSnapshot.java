@@ -0,0 +1,111 @@
+package com.helixyt2.mcaiagent.pathing;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.block.BlockState;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.PalettedContainer;
+import net.minecraft.world.chunk.WorldChunk;
+
+/**
+ * Immutable copy of the block states in a box of loaded chunk sections.
+ * Captured on the client thread (at once or a column at a time), then read
+ * freely by the path search on its worker thread. Blocks outside the captured sections read as null.
+ */
+public final class WorldSnapshot {
+    private final Long2ObjectOpenHashMap<PalettedContainer<BlockState>> sections;
+    private final int minY;
+    private final int maxY;
+    
+    private WorldSnapshot(Long2ObjectOpenHashMap<PalettedContainer<BlockState>> sections, int minY, int maxY) {
+        this.sections = sections;
+        this.minY = minY;
+        this.maxY = maxY;
+    }
+    
+    /**
+     * Copy the sections of loaded chunks within chunkRadius of center, between
+     * minY and maxY (clamped to the world's height)
+     */
+    public static WorldSnapshot capture(ClientWorld world, BlockPos center, int chunkRadius, int minY, int maxY) {
+        Capture capture = begin(world, center, chunkRadius, minY, maxY);
+        while (!capture.step()) {
+        }
+        return capture.finish();
+    }
+    
+    /**
+     * Start a capture that is copied one chunk column per step, so it can be
+     * spread over ticks. Same area as {@link #capture}.
+     */
+    public static Capture begin(ClientWorld world, BlockPos center, int chunkRadius, int minY, int maxY) {
+        return new Capture(world, center, chunkRadius, minY, maxY);
+    }
+    
+    /**
+     * A capture in progress. Client thread only; columns copied on a later
+     * tick show the world as of that tick.
+     */
+    public static final class Capture {
+        private final ClientWorld world;
+        private final int bottomSection;
+        private final int topSection;
+        private final int firstX;
+        private final int firstZ;
+        private final int side;
+        private final Long2ObjectOpenHashMap<PalettedContainer<BlockState>> sections = new Long2ObjectOpenHashMap<>();
+        private int next = 0; // Index of the next column, row by row
+        
+        private Capture(ClientWorld world, BlockPos center, int chunkRadius, int minY, int maxY) {
+            this.world = world;
+            this.bottomSection = Math.max(world.getBottomSectionCoord(), ChunkSectionPos.getSectionCoord(minY));
+            this.topSection = Math.min(world.getTopSectionCoord() - 1, ChunkSectionPos.getSectionCoord(maxY));
+            this.firstX = ChunkSectionPos.getSectionCoord(center.getX()) - chunkRadius;
+            this.firstZ = ChunkSectionPos.getSectionCoord(center.getZ()) - chunkRadius;
+            this.side = chunkRadius * 2 + 1;
+        }
+        
+        /**
+         * Copy the next chunk column. Returns true once every column is copied.
+         */
+        public boolean step() {
+            if (next < side * side) {
+                int chunkX = firstX + next / side;
+                int chunkZ = firstZ + next % side;
+                next++;
+                
+                WorldChunk chunk = world.getChunkManager().getWorldChunk(chunkX, chunkZ);
+                if (chunk != null) {
+                    for (int sectionY = bottomSection; sectionY <= topSection; sectionY++) {
+                        ChunkSection section = chunk.getSection(chunk.sectionCoordToIndex(sectionY));
+                        sections.put(ChunkSectionPos.asLong(chunkX, sectionY, chunkZ), section.getBlockStateContainer().copy());
+                    }
+                }
+            }
+            return next >= side * side;
+        }
+        
+        public WorldSnapshot finish() {
+            return new WorldSnapshot(sections, ChunkSectionPos.getBlockCoord(bottomSection),
+                ChunkSectionPos.getBlockCoord(topSection) + 15);
+        }
+    }
+    
+    /**
+     * Block state at the position, or null if it was not captured
+     */
+    public BlockState getBlockState(int x, int y, int z) {
+        if (y < minY || y > maxY) return null;
+        
+        PalettedContainer<BlockState> section = sections.get(ChunkSectionPos.asLong(
+            ChunkSectionPos.getSectionCoord(x), ChunkSectionPos.getSectionCoord(y), ChunkSectionPos.getSectionCoord(z)));
+        if (section == null) return null;
+        return section.get(x & 15, y & 15, z & 15);
+    }
+    
+    public int getSectionCount() {
+        return sections.size();
+    }
+}
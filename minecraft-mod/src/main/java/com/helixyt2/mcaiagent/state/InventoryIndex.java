@@ -0,0 +1,178 @@
+package com.helixyt2.mcaiagent.state;
+
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntMaps;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2LongOpenHashMap;
+import net.minecraft.client.network.ClientPlayerEntity;
+import net.minecraft.entity.player.PlayerInventory;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+
+/**
+ * Item → total count / slots index over the player inventory, shared by the
+ * state reporter, crafting and smelting so none of them scan slots themselves.
+ *
+ * Refreshed on the client tick when the inventory's change counter moves;
+ * only slots whose contents differ from the cached copy touch the index.
+ * A periodic full check catches stacks mutated without marking the inventory dirty.
+ */
+public class InventoryIndex {
+    private static final int FULL_CHECK_INTERVAL = 100; // Ticks
+    private static final int MAX_SLOTS = 64; // Slot sets are stored as a long bit mask
+    
+    private PlayerInventory inventory;
+    private int lastChangeCount = -1;
+    private int ticksSinceFullCheck = 0;
+    private int version = 0;
+    
+    // Cached slot contents
+    private int size = 0;
+    private final Item[] items = new Item[MAX_SLOTS];
+    private final int[] rawIds = new int[MAX_SLOTS];
+    private final int[] counts = new int[MAX_SLOTS];
+    
+    private final Reference2IntOpenHashMap<Item> totals = new Reference2IntOpenHashMap<>();
+    private final Reference2LongOpenHashMap<Item> slotMasks = new Reference2LongOpenHashMap<>();
+    private final Reference2IntMap<Item> totalsView = Reference2IntMaps.unmodifiable(totals);
+    
+    public void tick(ClientPlayerEntity player) {
+        if (player == null) {
+            reset();
+            return;
+        }
+        
+        PlayerInventory current = player.getInventory();
+        if (current != inventory) {
+            // New player entity (respawn, dimension change, reconnect)
+            reset();
+            inventory = current;
+        }
+        
+        ticksSinceFullCheck++;
+        if (inventory.getChangeCount() != lastChangeCount || ticksSinceFullCheck >= FULL_CHECK_INTERVAL) {
+            lastChangeCount = inventory.getChangeCount();
+            ticksSinceFullCheck = 0;
+            refresh();
+        }
+    }
+    
+    private void refresh() {
+        int newSize = Math.min(inventory.size(), MAX_SLOTS);
+        boolean changed = newSize != size;
+        for (int i = size; i < newSize; i++) {
+            items[i] = null;
+            counts[i] = 0;
+        }
+        size = newSize;
+        
+        for (int i = 0; i < size; i++) {
+            ItemStack stack = inventory.getStack(i);
+            Item item = stack.isEmpty() ? null : stack.getItem();
+            int count = stack.isEmpty() ? 0 : stack.getCount();
+            if (item == items[i] && count == counts[i]) continue;
+            
+            if (items[i] != null) {
+                remove(items[i], i, counts[i]);
+            }
+            items[i] = item;
+            counts[i] = count;
+            rawIds[i] = item != null ? Item.getRawId(item) : StateSnapshot.EMPTY_ITEM;
+            if (item != null) {
+                totals.addTo(item, count);
+                slotMasks.put(item, slotMasks.getLong(item) | (1L << i));
+            }
+            changed = true;
+        }
+        
+        if (changed) {
+            version++;
+        }
+    }
+    
+    private void remove(Item item, int slot, int count) {
+        if (totals.addTo(item, -count) - count <= 0) {
+            totals.removeInt(item);
+        }
+        long mask = slotMasks.getLong(item) & ~(1L << slot);
+        if (mask == 0) {
+            slotMasks.removeLong(item);
+        } else {
+            slotMasks.put(item, mask);
+        }
+    }
+    
+    private void reset() {
+        inventory = null;
+        lastChangeCount = -1;
+        for (int i = 0; i < size; i++) {
+            items[i] = null;
+            counts[i] = 0;
+            rawIds[i] = StateSnapshot.EMPTY_ITEM;
+        }
+        size = 0;
+        totals.clear();
+        slotMasks.clear();
+        version++;
+    }
+    
+    /**
+     * Total number of the item across all slots
+     */
+    public int count(Item item) {
+        return totals.getInt(item);
+    }
+    
+    public boolean has(Item item) {
+        return totals.containsKey(item);
+    }
+    
+    /**
+     * Slots holding the item as a bit mask (bit i = inventory slot i)
+     */
+    public long slotsOf(Item item) {
+        return slotMasks.getLong(item);
+    }
+    
+    /**
+     * Lowest slot holding the item, or -1
+     */
+    public int firstSlot(Item item) {
+        long mask = slotMasks.getLong(item);
+        return mask == 0 ? -1 : Long.numberOfTrailingZeros(mask);
+    }
+    
+    /**
+     * Read-only view of the totals; copy it before simulating changes
+     */
+    public Reference2IntMap<Item> getTotals() {
+        return totalsView;
+    }
+    
+    public int getSize() {
+        return size;
+    }
+    
+    public Item getItem(int slot) {
+        return items[slot];
+    }
+    
+    public int getCount(int slot) {
+        return counts[slot];
+    }
+    
+    /**
+     * Copy raw item ids and counts of every slot into the given arrays
+     */
+    public void copySlots(int[] rawIdsOut, int[] countsOut) {
+        System.arraycopy(rawIds, 0, rawIdsOut, 0, size);
+        System.arraycopy(counts, 0, countsOut, 0, size);
+    }
+    
+    /**
+     * Incremented whenever any slot changes
+     */
+    public int getVersion() {
+        return version;
+    }
+}
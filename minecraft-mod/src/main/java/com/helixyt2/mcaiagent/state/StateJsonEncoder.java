@@ -0,0 +1,79 @@
+package com.helixyt2.mcaiagent.state;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * Turns a {@link StateSnapshot} into the JSON "data" object of a state_update.
+ */
+public final class StateJsonEncoder {
+    private static final String EMPTY_ITEM_NAME = "minecraft:air";
+    
+    private StateJsonEncoder() {
+    }
+    
+    /**
+     * @param state    snapshot to encode
+     * @param baseline last sent snapshot for a delta, or null for the full state;
+     *                 must have the same slot count as the state
+     * @param seq      delta sequence number, or 0 when delta mode is off
+     */
+    public static JsonObject encode(StateSnapshot state, StateSnapshot baseline, long seq) {
+        int fields = state.diff(baseline);
+        boolean keyframe = baseline == null;
+        JsonObject data = new JsonObject();
+        
+        if ((fields & StateSnapshot.FIELD_POSITION) != 0) {
+            JsonObject position = new JsonObject();
+            position.addProperty("x", state.getX());
+            position.addProperty("y", state.getY());
+            position.addProperty("z", state.getZ());
+            data.add("position", position);
+        }
+        if ((fields & StateSnapshot.FIELD_HEALTH) != 0) {
+            data.addProperty("health", state.getHealth());
+        }
+        if ((fields & StateSnapshot.FIELD_HUNGER) != 0) {
+            data.addProperty("hunger", state.getHunger());
+        }
+        if ((fields & StateSnapshot.FIELD_SATURATION) != 0) {
+            data.addProperty("saturation", state.getSaturation());
+        }
+        if ((fields & StateSnapshot.FIELD_INVENTORY) != 0) {
+            data.add("inventory", encodeInventory(state, baseline));
+        }
+        if ((fields & StateSnapshot.FIELD_DIMENSION) != 0) {
+            data.addProperty("dimension", state.getDimension().toString());
+        }
+        if ((fields & StateSnapshot.FIELD_GAME_MODE) != 0) {
+            data.addProperty("gameMode", state.getGameMode().getName());
+        }
+        
+        if (seq > 0) {
+            data.addProperty("seq", seq);
+            data.addProperty("keyframe", keyframe);
+        }
+        return data;
+    }
+    
+    // Full inventory lists non-empty slots; a delta lists changed slots, emptied ones as air
+    private static JsonArray encodeInventory(StateSnapshot state, StateSnapshot baseline) {
+        JsonArray inventory = new JsonArray();
+        for (int i = 0; i < state.getSlotCount(); i++) {
+            int itemId = state.getItemId(i);
+            if (baseline == null) {
+                if (itemId == StateSnapshot.EMPTY_ITEM) continue;
+            } else if (state.slotEquals(baseline, i)) {
+                continue;
+            }
+            
+            JsonObject item = new JsonObject();
+            item.addProperty("slot", i);
+            item.addProperty("item", itemId == StateSnapshot.EMPTY_ITEM
+                ? EMPTY_ITEM_NAME : StateSnapshot.itemName(itemId));
+            item.addProperty("count", state.getCount(i));
+            inventory.add(item);
+        }
+        return inventory;
+    }
+}
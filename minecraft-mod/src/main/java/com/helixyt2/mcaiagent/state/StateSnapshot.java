@@ -0,0 +1,266 @@
+package com.helixyt2.mcaiagent.state;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ClientPlayerEntity;
+import net.minecraft.item.Item;
+import net.minecraft.registry.Registries;
+import net.minecraft.util.Identifier;
+import net.minecraft.world.GameMode;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reusable, preallocated copy of the player state.
+ * Filled on the client tick without allocating; item ids are raw registry
+ * ids and are only turned into names when the snapshot is encoded.
+ */
+public class StateSnapshot {
+    public static final int EMPTY_ITEM = 0; // Raw id of minecraft:air
+    private static final int DEFAULT_SLOTS = 64;
+    
+    // Field bits returned by diff()
+    public static final int FIELD_POSITION = 1;
+    public static final int FIELD_HEALTH = 1 << 1;
+    public static final int FIELD_HUNGER = 1 << 2;
+    public static final int FIELD_SATURATION = 1 << 3;
+    public static final int FIELD_DIMENSION = 1 << 4;
+    public static final int FIELD_GAME_MODE = 1 << 5;
+    public static final int FIELD_INVENTORY = 1 << 6;
+    public static final int ALL_FIELDS = (1 << 7) - 1;
+    
+    // Item names by raw id, resolved lazily by the encoders
+    private static volatile String[] itemNames = new String[0];
+    private static volatile byte[][] itemNameBytes = new byte[0][];
+    
+    private boolean valid = false;
+    
+    private double x;
+    private double y;
+    private double z;
+    private float health;
+    private int hunger;
+    private float saturation;
+    private Identifier dimension;
+    private GameMode gameMode;
+    
+    private int slotCount = 0;
+    private int[] itemIds = new int[DEFAULT_SLOTS];
+    private int[] counts = new int[DEFAULT_SLOTS];
+    private int inventoryVersion = -1; // InventoryIndex version the slots were copied at
+    
+    /**
+     * Fill this snapshot from the current player. Returns false if there is no player.
+     * Slots are copied from the inventory index rather than read stack by stack.
+     */
+    public boolean capture(MinecraftClient client, InventoryIndex inventory) {
+        ClientPlayerEntity player = client.player;
+        if (player == null) {
+            valid = false;
+            return false;
+        }
+        
+        x = player.getX();
+        y = player.getY();
+        z = player.getZ();
+        health = player.getHealth();
+        hunger = player.getHungerManager().getFoodLevel();
+        saturation = player.getHungerManager().getSaturationLevel();
+        dimension = player.getWorld().getRegistryKey().getValue();
+        gameMode = client.interactionManager != null ? client.interactionManager.getCurrentGameMode() : null;
+        
+        if (inventoryVersion != inventory.getVersion()) {
+            int size = inventory.getSize();
+            ensureSlots(size);
+            slotCount = size;
+            inventory.copySlots(itemIds, counts);
+            inventoryVersion = inventory.getVersion();
+        }
+        
+        valid = true;
+        return true;
+    }
+    
+    public void copyFrom(StateSnapshot other) {
+        valid = other.valid;
+        x = other.x;
+        y = other.y;
+        z = other.z;
+        health = other.health;
+        hunger = other.hunger;
+        saturation = other.saturation;
+        dimension = other.dimension;
+        gameMode = other.gameMode;
+        
+        if (inventoryVersion != other.inventoryVersion) {
+            ensureSlots(other.slotCount);
+            slotCount = other.slotCount;
+            System.arraycopy(other.itemIds, 0, itemIds, 0, slotCount);
+            System.arraycopy(other.counts, 0, counts, 0, slotCount);
+            inventoryVersion = other.inventoryVersion;
+        }
+    }
+    
+    private void ensureSlots(int size) {
+        if (itemIds.length < size) {
+            itemIds = new int[size];
+            counts = new int[size];
+        }
+    }
+    
+    /**
+     * Bit mask of the fields that differ from the baseline.
+     * A null or invalid baseline means everything changed.
+     */
+    public int diff(StateSnapshot baseline) {
+        int mask = 0;
+        if (baseline == null || !baseline.valid || baseline.slotCount != slotCount) {
+            mask = ALL_FIELDS;
+        } else {
+            if (!positionEquals(baseline)) mask |= FIELD_POSITION;
+            if (health != baseline.health) mask |= FIELD_HEALTH;
+            if (hunger != baseline.hunger) mask |= FIELD_HUNGER;
+            if (saturation != baseline.saturation) mask |= FIELD_SATURATION;
+            if (dimension != baseline.dimension) mask |= FIELD_DIMENSION;
+            if (gameMode != baseline.gameMode) mask |= FIELD_GAME_MODE;
+            if (inventoryChanged(baseline)) mask |= FIELD_INVENTORY;
+        }
+        if (gameMode == null) {
+            mask &= ~FIELD_GAME_MODE;
+        }
+        return mask;
+    }
+    
+    /**
+     * Whether this snapshot differs enough from the baseline to be worth reporting:
+     * moved further than the threshold, health/hunger changed, an inventory slot
+     * changed, or the dimension/game mode changed. Saturation alone does not count.
+     */
+    public boolean hasSignificantChange(StateSnapshot baseline, double positionThreshold) {
+        if (baseline == null || !baseline.valid || baseline.slotCount != slotCount) {
+            return true;
+        }
+        
+        double dx = x - baseline.x;
+        double dy = y - baseline.y;
+        double dz = z - baseline.z;
+        if (dx * dx + dy * dy + dz * dz > positionThreshold * positionThreshold) {
+            return true;
+        }
+        
+        if (health != baseline.health || hunger != baseline.hunger
+            || dimension != baseline.dimension || gameMode != baseline.gameMode) {
+            return true;
+        }
+        
+        return inventoryChanged(baseline);
+    }
+    
+    private boolean inventoryChanged(StateSnapshot baseline) {
+        if (inventoryVersion == baseline.inventoryVersion) {
+            return false; // Same index version, same slots
+        }
+        for (int i = 0; i < slotCount; i++) {
+            if (!slotEquals(baseline, i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    public boolean positionEquals(StateSnapshot other) {
+        return x == other.x && y == other.y && z == other.z;
+    }
+    
+    public boolean slotEquals(StateSnapshot other, int slot) {
+        return itemIds[slot] == other.itemIds[slot] && counts[slot] == other.counts[slot];
+    }
+    
+    public boolean isValid() {
+        return valid;
+    }
+    
+    public double getX() {
+        return x;
+    }
+    
+    public double getY() {
+        return y;
+    }
+    
+    public double getZ() {
+        return z;
+    }
+    
+    public float getHealth() {
+        return health;
+    }
+    
+    public int getHunger() {
+        return hunger;
+    }
+    
+    public float getSaturation() {
+        return saturation;
+    }
+    
+    public Identifier getDimension() {
+        return dimension;
+    }
+    
+    public GameMode getGameMode() {
+        return gameMode;
+    }
+    
+    public int getSlotCount() {
+        return slotCount;
+    }
+    
+    public int getItemId(int slot) {
+        return itemIds[slot];
+    }
+    
+    public int getCount(int slot) {
+        return counts[slot];
+    }
+    
+    /**
+     * Registry name for a raw item id, e.g. "minecraft:torch"
+     */
+    public static String itemName(int rawId) {
+        String[] names = itemNames;
+        if (rawId >= names.length) {
+            resolveItemNames();
+            names = itemNames;
+        }
+        return names[rawId];
+    }
+    
+    /**
+     * UTF-8 bytes of {@link #itemName(int)}, cached for the binary encoder
+     */
+    public static byte[] itemNameBytes(int rawId) {
+        byte[][] bytes = itemNameBytes;
+        if (rawId >= bytes.length) {
+            resolveItemNames();
+            bytes = itemNameBytes;
+        }
+        return bytes[rawId];
+    }
+    
+    // The item registry is frozen once the game is running, so the whole table is built once
+    private static synchronized void resolveItemNames() {
+        int size = Registries.ITEM.size();
+        if (itemNames.length == size) {
+            return;
+        }
+        
+        String[] names = new String[size];
+        byte[][] bytes = new byte[size][];
+        for (int i = 0; i < size; i++) {
+            names[i] = Registries.ITEM.getId(Item.byRawId(i)).toString();
+            bytes[i] = names[i].getBytes(StandardCharsets.UTF_8);
+        }
+        itemNameBytes = bytes;
+        itemNames = names;
+    }
+}
@@ -0,0 +1,315 @@
+package com.helixyt2.mcaiagent.world;
+
+import com.helixyt2.mcaiagent.TickScheduler;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.fabricmc.fabric.api.tag.convention.v2.ConventionalBlockTags;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.WorldChunk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Per-chunk index of "interesting" blocks (stations, containers and ores).
+ * Built when a chunk loads and kept current from block updates, so
+ * nearest-of-type lookups never scan the world.
+ *
+ * Loaded chunks are scanned a section at a time as a tick scheduler task,
+ * so a burst of chunk loads is spread over several ticks; until its scan
+ * finishes, a chunk only knows the blocks changed since it loaded.
+ *
+ * Updated and queried on the client thread.
+ */
+public class BlockIndex {
+    private static final Set<Block> STATIONS = Set.of(
+        Blocks.FURNACE,
+        Blocks.BLAST_FURNACE,
+        Blocks.SMOKER,
+        Blocks.CRAFTING_TABLE,
+        Blocks.CHEST,
+        Blocks.TRAPPED_CHEST,
+        Blocks.BARREL
+    );
+    
+    private static class ChunkEntry {
+        final Reference2ObjectOpenHashMap<Block, LongOpenHashSet> byBlock = new Reference2ObjectOpenHashMap<>();
+        
+        void add(Block block, long pos) {
+            LongOpenHashSet positions = byBlock.get(block);
+            if (positions == null) {
+                positions = new LongOpenHashSet();
+                byBlock.put(block, positions);
+            }
+            positions.add(pos);
+        }
+        
+        // Only a handful of block types per chunk, so checking each set is cheap
+        void remove(long pos) {
+            byBlock.values().removeIf(positions -> positions.remove(pos) && positions.isEmpty());
+        }
+    }
+    
+    private static class PendingChunk {
+        final WorldChunk chunk;
+        final ChunkEntry entry;
+        int nextSection = 0;
+        
+        PendingChunk(WorldChunk chunk, ChunkEntry entry) {
+            this.chunk = chunk;
+            this.entry = entry;
+        }
+    }
+    
+    // Keyed by ChunkPos.toLong()
+    private final Long2ObjectMap<ChunkEntry> chunks = new Long2ObjectOpenHashMap<>();
+    private final Long2ObjectLinkedOpenHashMap<PendingChunk> pending = new Long2ObjectLinkedOpenHashMap<>(); // In load order
+    private final TickScheduler scheduler;
+    private boolean indexing = false; // Whether the scan task is scheduled
+    
+    public BlockIndex(TickScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+    
+    public static boolean isInteresting(BlockState state) {
+        return STATIONS.contains(state.getBlock()) || state.isIn(ConventionalBlockTags.ORES);
+    }
+    
+    /**
+     * Queue a freshly loaded chunk for indexing. Its entry exists right away,
+     * so block updates during the scan are not lost.
+     */
+    public void onChunkLoad(WorldChunk chunk) {
+        long key = chunk.getPos().toLong();
+        ChunkEntry entry = new ChunkEntry();
+        chunks.put(key, entry);
+        pending.put(key, new PendingChunk(chunk, entry));
+        
+        if (!indexing) {
+            indexing = true;
+            scheduler.submit(this::indexPending);
+        }
+    }
+    
+    public void onChunkUnload(WorldChunk chunk) {
+        long key = chunk.getPos().toLong();
+        chunks.remove(key);
+        pending.remove(key);
+    }
+    
+    /**
+     * Scheduler task: scan queued chunks a section at a time until the
+     * budget is spent, at least one section per run
+     */
+    private boolean indexPending(TickScheduler.Budget budget) {
+        while (!pending.isEmpty()) {
+            PendingChunk next = pending.get(pending.firstLongKey());
+            ChunkSection[] sections = next.chunk.getSectionArray();
+            if (next.nextSection < sections.length) {
+                indexSection(next.chunk, next.nextSection++, next.entry);
+            }
+            if (next.nextSection >= sections.length) {
+                pending.removeFirst();
+            }
+            if (!budget.hasTime() && !pending.isEmpty()) {
+                return false;
+            }
+        }
+        indexing = false;
+        return true;
+    }
+    
+    /**
+     * Index one section. Sections without any interesting block are skipped
+     * through their palette without visiting each block.
+     */
+    private static void indexSection(WorldChunk chunk, int index, ChunkEntry entry) {
+        ChunkSection section = chunk.getSectionArray()[index];
+        if (section.isEmpty() || !section.hasAny(BlockIndex::isInteresting)) {
+            return;
+        }
+        
+        ChunkPos chunkPos = chunk.getPos();
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+        int baseY = chunk.sectionIndexToCoord(index) << 4;
+        for (int y = 0; y < 16; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    BlockState state = section.getBlockState(x, y, z);
+                    if (isInteresting(state)) {
+                        pos.set(chunkPos.getStartX() + x, baseY + y, chunkPos.getStartZ() + z);
+                        entry.add(state.getBlock(), pos.asLong());
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Keep the index current when a single block changes
+     */
+    public void onBlockUpdate(BlockPos pos, BlockState state) {
+        ChunkEntry entry = chunks.get(ChunkPos.toLong(pos.getX() >> 4, pos.getZ() >> 4));
+        if (entry == null) return;
+        
+        entry.remove(pos.asLong());
+        if (isInteresting(state)) {
+            entry.add(state.getBlock(), pos.asLong());
+        }
+    }
+    
+    public void clear() {
+        chunks.clear();
+        pending.clear();
+    }
+    
+    /**
+     * Nearest indexed block of the given type within maxDistance blocks, or null
+     */
+    public BlockPos findNearest(Block block, BlockPos origin, int maxDistance) {
+        return findNearest(Set.of(block), origin, maxDistance);
+    }
+    
+    /**
+     * Nearest indexed block of any of the given types within maxDistance blocks, or null
+     */
+    public BlockPos findNearest(Set<Block> blocks, BlockPos origin, int maxDistance) {
+        List<BlockPos> nearest = findNearest(blocks, origin, 1, maxDistance);
+        return nearest.isEmpty() ? null : nearest.get(0);
+    }
+    
+    /**
+     * Up to k indexed blocks of any of the given types within maxDistance blocks,
+     * nearest first. Chunks are the spatial buckets: they are visited in rings
+     * around the origin, stopping once no block in the remaining rings can beat
+     * the k-th nearest found so far.
+     */
+    public List<BlockPos> findNearest(Set<Block> blocks, BlockPos origin, int k, int maxDistance) {
+        if (k <= 0) {
+            return new ArrayList<>();
+        }
+        
+        int originChunkX = origin.getX() >> 4;
+        int originChunkZ = origin.getZ() >> 4;
+        int maxRing = (maxDistance >> 4) + 1;
+        long maxDistanceSq = (long) maxDistance * maxDistance;
+        
+        // Sorted by distance; k is small, so insertion is cheaper than a heap
+        long[] bestPos = new long[k];
+        long[] bestDistanceSq = new long[k];
+        int found = 0;
+        
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // Every block in this ring is at least (ring - 1) * 16 blocks away horizontally
+            long ringMin = Math.max(0, (ring - 1) * 16L);
+            long bound = found == k ? bestDistanceSq[k - 1] : maxDistanceSq;
+            if (ringMin * ringMin > bound) {
+                break;
+            }
+            
+            for (int dx = -ring; dx <= ring; dx++) {
+                for (int dz = -ring; dz <= ring; dz++) {
+                    if (Math.abs(dx) != ring && Math.abs(dz) != ring) continue; // Ring edge only
+                    
+                    ChunkEntry entry = chunks.get(ChunkPos.toLong(originChunkX + dx, originChunkZ + dz));
+                    if (entry == null) continue;
+                    
+                    for (Block block : blocks) {
+                        LongOpenHashSet positions = entry.byBlock.get(block);
+                        if (positions == null) continue;
+                        
+                        LongIterator it = positions.iterator();
+                        while (it.hasNext()) {
+                            long packed = it.nextLong();
+                            long distanceSq = distanceSq(origin, packed);
+                            if (distanceSq > maxDistanceSq || (found == k && distanceSq >= bestDistanceSq[k - 1])) {
+                                continue;
+                            }
+                            
+                            int i = found < k ? found++ : k - 1;
+                            while (i > 0 && bestDistanceSq[i - 1] > distanceSq) {
+                                bestDistanceSq[i] = bestDistanceSq[i - 1];
+                                bestPos[i] = bestPos[i - 1];
+                                i--;
+                            }
+                            bestDistanceSq[i] = distanceSq;
+                            bestPos[i] = packed;
+                        }
+                    }
+                }
+            }
+        }
+        
+        List<BlockPos> result = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            result.add(BlockPos.fromLong(bestPos[i]));
+        }
+        return result;
+    }
+    
+    /**
+     * All indexed blocks of the given type within maxDistance blocks, nearest first
+     */
+    public List<BlockPos> findWithin(Block block, BlockPos origin, int maxDistance) {
+        long maxDistanceSq = (long) maxDistance * maxDistance;
+        int minChunkX = (origin.getX() - maxDistance) >> 4;
+        int maxChunkX = (origin.getX() + maxDistance) >> 4;
+        int minChunkZ = (origin.getZ() - maxDistance) >> 4;
+        int maxChunkZ = (origin.getZ() + maxDistance) >> 4;
+        
+        LongArrayList found = new LongArrayList();
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                ChunkEntry entry = chunks.get(ChunkPos.toLong(chunkX, chunkZ));
+                if (entry == null) continue;
+                
+                LongOpenHashSet positions = entry.byBlock.get(block);
+                if (positions == null) continue;
+                
+                LongIterator it = positions.iterator();
+                while (it.hasNext()) {
+                    long packed = it.nextLong();
+                    if (distanceSq(origin, packed) <= maxDistanceSq) {
+                        found.add(packed);
+                    }
+                }
+            }
+        }
+        
+        found.sort((a, b) -> Long.compare(distanceSq(origin, a), distanceSq(origin, b)));
+        List<BlockPos> result = new ArrayList<>(found.size());
+        for (int i = 0; i < found.size(); i++) {
+            result.add(BlockPos.fromLong(found.getLong(i)));
+        }
+        return result;
+    }
+    
+    static long distanceSq(BlockPos origin, long packed) {
+        long dx = BlockPos.unpackLongX(packed) - origin.getX();
+        long dy = BlockPos.unpackLongY(packed) - origin.getY();
+        long dz = BlockPos.unpackLongZ(packed) - origin.getZ();
+        return dx * dx + dy * dy + dz * dz;
+    }
+    
+    public int getIndexedChunkCount() {
+        return chunks.size();
+    }
+    
+    /**
+     * Loaded chunks whose scan has not finished yet
+     */
+    public int getPendingChunkCount() {
+        return pending.size();
+    }
+}
@@ -0,0 +1,153 @@
+package com.helixyt2.mcaiagent.world;
+
+import net.minecraft.block.Block;
+import net.minecraft.registry.Registries;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Finds ores (and the other indexed blocks) in loaded chunks through the
+ * block index, and orders a set of targets into a short visiting tour:
+ * nearest-neighbour first, then improved with 2-opt moves.
+ *
+ * Queried on the client thread, like the index itself.
+ */
+public class OreLocator {
+    private static final String DEEPSLATE_PREFIX = "deepslate_";
+    private static final int MAX_TWO_OPT_PASSES = 16;
+    private static final double CLIMB_WEIGHT = 2.0; // Vertical travel costs more than walking
+    
+    private final BlockIndex blockIndex;
+    
+    public OreLocator(BlockIndex blockIndex) {
+        this.blockIndex = blockIndex;
+    }
+    
+    /**
+     * Block types matching a name such as "iron_ore" or "minecraft:diamond_ore".
+     * Ores include their deepslate variant (and the other way around). Empty if
+     * the name is not a block.
+     */
+    public Set<Block> resolveBlocks(String name) {
+        String key = name.trim().toLowerCase(Locale.ROOT);
+        if (!key.contains(":")) {
+            key = "minecraft:" + key;
+        }
+        
+        Set<Block> blocks = new LinkedHashSet<>();
+        Identifier id = Identifier.tryParse(key);
+        if (id == null) {
+            return blocks;
+        }
+        addBlock(blocks, id);
+        
+        String path = id.getPath();
+        if (path.endsWith("_ore")) {
+            String variant = path.startsWith(DEEPSLATE_PREFIX)
+                ? path.substring(DEEPSLATE_PREFIX.length())
+                : DEEPSLATE_PREFIX + path;
+            addBlock(blocks, Identifier.of(id.getNamespace(), variant));
+        }
+        return blocks;
+    }
+    
+    private static void addBlock(Set<Block> blocks, Identifier id) {
+        if (Registries.BLOCK.containsId(id)) {
+            blocks.add(Registries.BLOCK.get(id));
+        }
+    }
+    
+    /**
+     * Whether blocks of this type are tracked at all; only those can be located
+     */
+    public static boolean isIndexed(Block block) {
+        return BlockIndex.isInteresting(block.getDefaultState());
+    }
+    
+    /**
+     * Up to k nearest blocks of the given types within maxDistance, nearest first
+     */
+    public List<BlockPos> findNearest(Set<Block> blocks, BlockPos origin, int k, int maxDistance) {
+        return blockIndex.findNearest(blocks, origin, k, maxDistance);
+    }
+    
+    /**
+     * Order the targets so that visiting them one after another from start is
+     * short. Greedy nearest-neighbour gives the first tour, then 2-opt reverses
+     * stretches of it while that shortens the walk. The tour is open: it ends
+     * at the last target rather than returning to start.
+     */
+    public static List<BlockPos> planVisits(BlockPos start, List<BlockPos> targets) {
+        int n = targets.size();
+        if (n < 2) {
+            return new ArrayList<>(targets);
+        }
+        
+        // tour[0] is the start, tour[1..n] the targets
+        BlockPos[] tour = new BlockPos[n + 1];
+        tour[0] = start;
+        boolean[] used = new boolean[n];
+        for (int i = 1; i <= n; i++) {
+            BlockPos from = tour[i - 1];
+            int best = -1;
+            double bestCost = Double.MAX_VALUE;
+            for (int j = 0; j < n; j++) {
+                if (used[j]) continue;
+                double cost = travelCost(from, targets.get(j));
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    best = j;
+                }
+            }
+            used[best] = true;
+            tour[i] = targets.get(best);
+        }
+        
+        // Reversing tour[i..j] swaps edges (i-1, i) and (j, j+1) for (i-1, j) and (i, j+1)
+        for (int pass = 0; pass < MAX_TWO_OPT_PASSES; pass++) {
+            boolean improved = false;
+            for (int i = 1; i < n; i++) {
+                for (int j = i + 1; j <= n; j++) {
+                    double before = travelCost(tour[i - 1], tour[i]);
+                    double after = travelCost(tour[i - 1], tour[j]);
+                    if (j < n) {
+                        before += travelCost(tour[j], tour[j + 1]);
+                        after += travelCost(tour[i], tour[j + 1]);
+                    }
+                    if (after < before - 1e-9) {
+                        reverse(tour, i, j);
+                        improved = true;
+                    }
+                }
+            }
+            if (!improved) break;
+        }
+        
+        List<BlockPos> ordered = new ArrayList<>(n);
+        for (int i = 1; i <= n; i++) {
+            ordered.add(tour[i]);
+        }
+        return ordered;
+    }
+    
+    private static void reverse(BlockPos[] tour, int from, int to) {
+        while (from < to) {
+            BlockPos swap = tour[from];
+            tour[from++] = tour[to];
+            tour[to--] = swap;
+        }
+    }
+    
+    static double travelCost(BlockPos a, BlockPos b) {
+        double dx = a.getX() - b.getX();
+        double dy = (a.getY() - b.getY()) * CLIMB_WEIGHT;
+        double dz = a.getZ() - b.getZ();
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+}